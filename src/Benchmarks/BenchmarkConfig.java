@@ -0,0 +1,89 @@
+package Benchmarks;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import COMSETsystem.CityMap;
+import MapCreation.MapCreator;
+
+/**
+ * The BenchmarkConfig class reads the simulation parameters that the benchmarks need from
+ * etc/config.properties, so that the benchmarks run on the same map and dataset as Main.
+ */
+public class BenchmarkConfig {
+
+	// Full path to an OSM JSON map file
+	public final String mapJSONFile;
+
+	// Full path to a TLC New York Yellow trip record file
+	public final String datasetFile;
+
+	// Full path to a KML defining the bounding polygon to crop the map
+	public final String boundingPolygonKMLFile;
+
+	// The speed reduction to accommodate traffic jams and turn delays
+	public final double speedReduction;
+
+	// The number of agents to deploy
+	public final long numberOfAgents;
+
+	// The maximum life time of a resource in seconds
+	public final long resourceMaximumLifeTime;
+
+	// The fully qualified name of the agent class
+	public final String agentClassName;
+
+	// The seed for placing the agents; a fixed seed if the configuration file asks for a random one
+	public final long agentPlacementSeed;
+
+	// The cache directory; null if not configured
+	public final String cacheDirectory;
+
+	// All the properties of the configuration file
+	public final Properties properties;
+
+	/**
+	 * Load the configuration file.
+	 *
+	 * @param configFile path to the configuration file
+	 * @throws IOException if the configuration file cannot be read
+	 */
+	public BenchmarkConfig(String configFile) throws IOException {
+		properties = new Properties();
+		try (FileInputStream in = new FileInputStream(configFile)) {
+			properties.load(in);
+		}
+		mapJSONFile = properties.getProperty("comset.map_JSON_file").trim();
+		datasetFile = properties.getProperty("comset.dataset_file").trim();
+		boundingPolygonKMLFile = properties.getProperty("comset.bounding_polygon_KML_file").trim();
+		speedReduction = Double.parseDouble(properties.getProperty("comset.speed_reduction").trim());
+		numberOfAgents = Long.parseLong(properties.getProperty("comset.number_of_agents").trim());
+		resourceMaximumLifeTime = Long.parseLong(properties.getProperty("comset.resource_maximum_life_time").trim());
+		agentClassName = properties.getProperty("comset.agent_class").trim();
+		long seed = Long.parseLong(properties.getProperty("comset.agent_placement_seed").trim());
+		agentPlacementSeed = seed >= 0 ? seed : 0;
+		String cache = properties.getProperty("comset.cache_directory");
+		cacheDirectory = cache != null ? cache.trim() : null;
+	}
+
+	/**
+	 * Load etc/config.properties.
+	 *
+	 * @throws IOException if the configuration file cannot be read
+	 */
+	public BenchmarkConfig() throws IOException {
+		this("etc/config.properties");
+	}
+
+	/**
+	 * Create the configured map, without the path table.
+	 *
+	 * @return the map
+	 */
+	public CityMap createMap() {
+		MapCreator creator = new MapCreator(mapJSONFile, boundingPolygonKMLFile, speedReduction);
+		creator.createMap();
+		return creator.outputCityMap();
+	}
+}
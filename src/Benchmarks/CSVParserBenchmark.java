@@ -0,0 +1,77 @@
+package Benchmarks;
+
+import java.io.File;
+import java.time.ZoneId;
+import java.util.Iterator;
+
+import COMSETsystem.CityMap;
+import DataParsing.CSVNewYorkParser;
+import DataParsing.Resource;
+
+/**
+ * Measures the throughput of parsing the configured dataset with the two parsers of
+ * CSVNewYorkParser:
+ *
+ * 1. scannerStream, the java.util.Scanner parser with a String per field and a
+ *    DateTimeFormatter per row. This is how CSVNewYorkParser.parse used to work.
+ * 2. stream, the byte-level parser of CSVByteReader used by CSVNewYorkParser.parse.
+ *
+ * Both parse the whole file, e.g., a month of TLC data, and the resources they produce are
+ * checked to be the same. The map is created only for the bounding polygon and the time zone.
+ *
+ * Usage: mvn exec:java -Dexec.mainClass="Benchmarks.CSVParserBenchmark" -Dexec.args="[number of rounds]"
+ */
+public class CSVParserBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+		BenchmarkConfig config = new BenchmarkConfig();
+		System.out.println("Creating the map...");
+		CityMap map = config.createMap();
+		ZoneId zoneId = map.computeZoneId();
+		CSVNewYorkParser parser = new CSVNewYorkParser(config.datasetFile, zoneId);
+		double megabytes = new File(config.datasetFile).length() / 1e6;
+
+		// check that both parsers produce the same resources
+		Iterator<Resource> expected = parser.scannerStream();
+		Iterator<Resource> actual = parser.stream();
+		long resources = 0;
+		while (expected.hasNext()) {
+			Resource e = expected.next();
+			if (!actual.hasNext()) {
+				throw new AssertionError("byte-level parser ends after " + resources + " resources");
+			}
+			Resource a = actual.next();
+			if (e.getTime() != a.getTime() || Double.compare(e.getPickupLat(), a.getPickupLat()) != 0
+					|| Double.compare(e.getPickupLon(), a.getPickupLon()) != 0 || Double.compare(e.getDropoffLat(), a.getDropoffLat()) != 0
+					|| Double.compare(e.getDropoffLon(), a.getDropoffLon()) != 0) {
+				throw new AssertionError("resource " + resources + " differs");
+			}
+			resources++;
+		}
+		if (actual.hasNext()) {
+			throw new AssertionError("byte-level parser has more than " + resources + " resources");
+		}
+		System.out.println(resources + " resources in " + String.format("%.0f", megabytes) + " MB; both parsers agree");
+
+		double scannerSeconds = Double.MAX_VALUE;
+		double byteSeconds = Double.MAX_VALUE;
+		for (int round = 0; round < rounds; round++) {
+			scannerSeconds = Math.min(scannerSeconds, time(parser.scannerStream()));
+			byteSeconds = Math.min(byteSeconds, time(parser.stream()));
+		}
+
+		System.out.println();
+		System.out.println(String.format("%-8s %8.2f s %8.1f MB/s", "Scanner", scannerSeconds, megabytes / scannerSeconds));
+		System.out.println(String.format("%-8s %8.2f s %8.1f MB/s (%.1fx)", "byte", byteSeconds, megabytes / byteSeconds, scannerSeconds / byteSeconds));
+	}
+
+	private static double time(Iterator<Resource> resources) {
+		long start = System.nanoTime();
+		while (resources.hasNext()) {
+			resources.next();
+		}
+		return (System.nanoTime() - start) / 1e9;
+	}
+}
@@ -0,0 +1,110 @@
+package Benchmarks;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.logging.LogManager;
+
+import COMSETsystem.BaseAgent;
+import COMSETsystem.Event;
+import COMSETsystem.EventScheduler;
+import COMSETsystem.Simulator;
+
+/**
+ * Runs the configured simulation with three event queues and compares the running times:
+ *
+ * 1. java.util.PriorityQueue, where cancelling an event on assignment is a linear scan of the
+ *    queue. This is how Simulator.events used to work.
+ * 2. EventQueue, the indexed binary heap (comset.event_scheduler = heap).
+ * 3. CalendarEventQueue, the calendar queue (comset.event_scheduler = calendar).
+ *
+ * Each run configures a new simulator on the configured map and dataset, e.g., a full day of
+ * TLC data, and times Simulator.run only. Set comset.cache_directory so that the path table is
+ * computed once rather than for every run.
+ *
+ * Usage: mvn exec:java -Dexec.mainClass="Benchmarks.EventQueueBenchmark"
+ */
+public class EventQueueBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		BenchmarkConfig config = new BenchmarkConfig();
+		LogManager.getLogManager().reset();
+
+		String[] schedulers = { "PriorityQueue", Simulator.HEAP_SCHEDULER, Simulator.CALENDAR_SCHEDULER };
+		double[] seconds = new double[schedulers.length];
+		for (int i = 0; i < schedulers.length; i++) {
+			Simulator simulator = createSimulator(config, schedulers[i]);
+			long start = System.nanoTime();
+			simulator.run();
+			seconds[i] = (System.nanoTime() - start) / 1e9;
+		}
+
+		System.out.println();
+		for (int i = 0; i < schedulers.length; i++) {
+			System.out.println(String.format("%-14s %8.1f s (%.2fx)", schedulers[i], seconds[i], seconds[0] / seconds[i]));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	static Simulator createSimulator(BenchmarkConfig config, String scheduler) throws ClassNotFoundException {
+		Simulator simulator = new Simulator((Class<? extends BaseAgent>) Class.forName(config.agentClassName));
+		simulator.setCacheDirectory(config.cacheDirectory);
+		if (!scheduler.equals("PriorityQueue")) {
+			simulator.setEventScheduler(scheduler);
+		}
+		simulator.configure(config.mapJSONFile, config.datasetFile, config.numberOfAgents, config.boundingPolygonKMLFile,
+				config.resourceMaximumLifeTime, config.agentPlacementSeed, config.speedReduction);
+		if (scheduler.equals("PriorityQueue")) {
+			PriorityQueueScheduler events = new PriorityQueueScheduler();
+			Event event;
+			while ((event = simulator.getEvents().poll()) != null) {
+				events.add(event);
+			}
+			simulator.setEvents(events);
+		}
+		return simulator;
+	}
+
+	/**
+	 * An EventScheduler backed by java.util.PriorityQueue, as the simulator used to be.
+	 */
+	static class PriorityQueueScheduler extends AbstractQueue<Event> implements EventScheduler {
+
+		private final PriorityQueue<Event> queue = new PriorityQueue<>();
+
+		@Override
+		public boolean offer(Event event) {
+			return queue.offer(event);
+		}
+
+		@Override
+		public Event poll() {
+			return queue.poll();
+		}
+
+		@Override
+		public Event peek() {
+			return queue.peek();
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			return queue.remove(o);
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return queue.contains(o);
+		}
+
+		@Override
+		public int size() {
+			return queue.size();
+		}
+
+		@Override
+		public Iterator<Event> iterator() {
+			return queue.iterator();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package Benchmarks;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import COMSETsystem.CityMap;
+import COMSETsystem.Link;
+import COMSETsystem.Road;
+import DataParsing.BalancedKdTree;
+import DataParsing.CSVNewYorkParser;
+import DataParsing.GeoProjector;
+import DataParsing.KdTree;
+import DataParsing.Resource;
+
+/**
+ * Measures the nearest-link queries of map matching on the configured map with:
+ *
+ * 1. KdTree, which inserts the links one at a time. This is how the map used to be indexed.
+ * 2. BalancedKdTree, which is bulk-loaded from all the links and used by CityMap.
+ *
+ * The queries are the pickup and dropoff locations of the configured dataset, e.g., millions of
+ * locations for a month of TLC data. The balanced tree is checked to find a link at least as
+ * near as KdTree does; they may find different links when several are at the same distance.
+ *
+ * Usage: mvn exec:java -Dexec.mainClass="Benchmarks.NearestLinkBenchmark" -Dexec.args="[number of rounds] [maximum number of queries]"
+ */
+public class NearestLinkBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		long maxQueries = args.length > 1 ? Long.parseLong(args[1]) : Long.MAX_VALUE;
+
+		BenchmarkConfig config = new BenchmarkConfig();
+		System.out.println("Creating the map...");
+		CityMap map = config.createMap();
+		GeoProjector projector = map.projector();
+
+		List<Link> links = new ArrayList<>();
+		for (Road road : map.roads()) {
+			links.addAll(road.links);
+		}
+
+		long start = System.nanoTime();
+		KdTree kdTree = new KdTree();
+		for (Link link : links) {
+			kdTree.insert(link);
+		}
+		double kdTreeBuildSeconds = (System.nanoTime() - start) / 1e9;
+		start = System.nanoTime();
+		BalancedKdTree balancedKdTree = new BalancedKdTree(links);
+		double balancedBuildSeconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println("Loading the queries...");
+		List<Point2D> queries = new ArrayList<>();
+		Iterator<Resource> resources = new CSVNewYorkParser(config.datasetFile, map.computeZoneId()).stream();
+		while (resources.hasNext() && queries.size() < maxQueries) {
+			Resource resource = resources.next();
+			double[] pickup = projector.fromLatLon(resource.getPickupLat(), resource.getPickupLon());
+			double[] dropoff = projector.fromLatLon(resource.getDropoffLat(), resource.getDropoffLon());
+			queries.add(new Point2D.Double(pickup[0], pickup[1]));
+			queries.add(new Point2D.Double(dropoff[0], dropoff[1]));
+		}
+
+		// Check that the balanced tree finds a nearest link. KdTree may miss it: its pruning
+		// assumes that the partition bands do not overlap, which they may after being extended.
+		long sameLink = 0;
+		long kdTreeMisses = 0;
+		for (Point2D query : queries) {
+			Link expected = kdTree.nearest(query);
+			Link actual = balancedKdTree.nearest(query);
+			if (actual.distanceSq(query) > expected.distanceSq(query)) {
+				throw new AssertionError("the balanced tree misses the nearest link to " + query);
+			}
+			if (actual.distanceSq(query) < expected.distanceSq(query)) {
+				kdTreeMisses++;
+			} else if (expected == actual) {
+				sameLink++;
+			}
+		}
+		System.out.println(links.size() + " links, " + queries.size() + " queries; " + sameLink + " same links, "
+				+ (queries.size() - sameLink - kdTreeMisses) + " ties broken differently, "
+				+ kdTreeMisses + " nearer links than KdTree");
+
+		double kdTreeSeconds = Double.MAX_VALUE;
+		double balancedSeconds = Double.MAX_VALUE;
+		for (int round = 0; round < rounds; round++) {
+			start = System.nanoTime();
+			for (Point2D query : queries) {
+				kdTree.nearest(query);
+			}
+			kdTreeSeconds = Math.min(kdTreeSeconds, (System.nanoTime() - start) / 1e9);
+			start = System.nanoTime();
+			for (Point2D query : queries) {
+				balancedKdTree.nearest(query);
+			}
+			balancedSeconds = Math.min(balancedSeconds, (System.nanoTime() - start) / 1e9);
+		}
+
+		System.out.println();
+		System.out.println(String.format("%-9s %8s %10s %14s", "", "build", "queries", "queries/s"));
+		System.out.println(String.format("%-9s %6.3f s %8.2f s %14.0f", "KdTree", kdTreeBuildSeconds, kdTreeSeconds, queries.size() / kdTreeSeconds));
+		System.out.println(String.format("%-9s %6.3f s %8.2f s %14.0f (%.1fx)", "balanced", balancedBuildSeconds, balancedSeconds,
+				queries.size() / balancedSeconds, kdTreeSeconds / balancedSeconds));
+	}
+}
@@ -0,0 +1,127 @@
+package Benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import COMSETsystem.CityMap;
+import COMSETsystem.Intersection;
+import COMSETsystem.Road;
+
+/**
+ * Measures single-source Dijkstra on the configured map with two queues:
+ *
+ * 1. java.util.PriorityQueue, where a decrease-key is a remove followed by an add. The remove
+ *    is a linear scan of the queue. This is how CityMap.calcTravelTimes used to work.
+ * 2. The indexed binary heap used by CityMap.calcTravelTimes, measured by computing the
+ *    whole path table in a single thread.
+ *
+ * The PriorityQueue version is run from a random sample of sources only, because running it
+ * from every intersection takes minutes on the Manhattan map. The travel times it computes are
+ * checked against the path table.
+ *
+ * Usage: mvn exec:java -Dexec.mainClass="Benchmarks.PathTableBenchmark" -Dexec.args="[number of sampled sources]"
+ */
+public class PathTableBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int samples = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+
+		BenchmarkConfig config = new BenchmarkConfig();
+		System.out.println("Creating the map...");
+		CityMap map = config.createMap();
+		List<Intersection> intersections = new ArrayList<>(map.intersections().values());
+		int n = intersections.size();
+		System.out.println(n + " intersections, " + map.roads().size() + " roads");
+
+		// warm up both versions
+		Random random = new Random(1);
+		for (int i = 0; i < 10; i++) {
+			priorityQueueDijkstra(intersections, intersections.get(random.nextInt(n)));
+		}
+		map.calcTravelTimes(1);
+
+		long start = System.nanoTime();
+		map.calcTravelTimes(1);
+		double indexedHeapMillis = (System.nanoTime() - start) / 1e6 / n;
+
+		random = new Random(2);
+		double priorityQueueMillis = 0;
+		int mismatches = 0;
+		for (int i = 0; i < samples; i++) {
+			Intersection source = intersections.get(random.nextInt(n));
+			start = System.nanoTime();
+			HashMap<Intersection, Long> costs = priorityQueueDijkstra(intersections, source);
+			priorityQueueMillis += (System.nanoTime() - start) / 1e6;
+			for (Intersection destination : intersections) {
+				Long cost = costs.get(destination);
+				if (cost != Long.MAX_VALUE && cost != map.travelTimeBetween(source, destination)) {
+					mismatches++;
+				}
+			}
+		}
+		priorityQueueMillis /= samples;
+
+		System.out.println(String.format("PriorityQueue with remove: %.3f ms per source (%d sampled sources)", priorityQueueMillis, samples));
+		System.out.println(String.format("Indexed binary heap:       %.3f ms per source (all %d sources)", indexedHeapMillis, n));
+		System.out.println(String.format("Speedup: %.1fx", priorityQueueMillis / indexedHeapMillis));
+		System.out.println(String.format("Estimated single-thread path table time: %.1f s before, %.1f s now",
+				priorityQueueMillis * n / 1000, indexedHeapMillis * n / 1000));
+		System.out.println("Travel time mismatches: " + mismatches);
+	}
+
+	/**
+	 * Single-source Dijkstra with a PriorityQueue in which every intersection is queued from
+	 * the start and a decrease-key is done by remove and add.
+	 */
+	static HashMap<Intersection, Long> priorityQueueDijkstra(List<Intersection> intersections, Intersection source) {
+		HashMap<Intersection, QueueEntry> queueEntry = new HashMap<>();
+		for (Intersection i : intersections) {
+			queueEntry.put(i, new QueueEntry(i));
+		}
+		queueEntry.get(source).cost = 0;
+		PriorityQueue<QueueEntry> queue = new PriorityQueue<>(queueEntry.values());
+		while (!queue.isEmpty()) {
+			QueueEntry entry = queue.poll();
+			entry.inQueue = false;
+			if (entry.cost == Long.MAX_VALUE) {
+				continue;
+			}
+			for (Road r : entry.intersection.getRoadsFrom()) {
+				QueueEntry v = queueEntry.get(r.to);
+				if (!v.inQueue) continue;
+				long ncost = entry.cost + r.travelTime;
+				if (v.cost > ncost) {
+					queue.remove(v);
+					v.cost = ncost;
+					queue.add(v);
+				}
+			}
+		}
+		HashMap<Intersection, Long> costs = new HashMap<>();
+		for (QueueEntry entry : queueEntry.values()) {
+			costs.put(entry.intersection, entry.cost);
+		}
+		return costs;
+	}
+
+	private static class QueueEntry implements Comparable<QueueEntry> {
+		final Intersection intersection;
+		long cost = Long.MAX_VALUE;
+		boolean inQueue = true;
+
+		QueueEntry(Intersection intersection) {
+			this.intersection = intersection;
+		}
+
+		@Override
+		public int compareTo(QueueEntry j) {
+			if (cost != j.cost) {
+				return cost < j.cost ? -1 : 1;
+			}
+			return Long.compare(intersection.id, j.intersection.id);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package COMSETsystem;
+
+/**
+ * The k empty agents that reach a location the earliest, kept sorted by arrival time, ties
+ * broken by the smaller id. Used to build the candidate agents of a resource in batch assignment.
+ */
+class AgentCandidates {
+
+	// the candidates sorted by arrival time, then id
+	final AgentEvent[] agents;
+
+	// the arrival time of every candidate
+	final long[] arrivals;
+
+	// the number of candidates
+	int size = 0;
+
+	/**
+	 * Constructor of AgentCandidates.
+	 *
+	 * @param capacity the maximum number of candidates
+	 */
+	AgentCandidates(int capacity) {
+		agents = new AgentEvent[capacity];
+		arrivals = new long[capacity];
+	}
+
+	/**
+	 * Remove all the candidates.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return the arrival time an agent must not exceed to be a candidate; Long.MAX_VALUE
+	 *         if there are fewer than capacity candidates
+	 */
+	long bound() {
+		return size < agents.length ? Long.MAX_VALUE : arrivals[size - 1];
+	}
+
+	/**
+	 * Add an agent if it is among the capacity earliest agents seen so far.
+	 *
+	 * @param agent the agent
+	 * @param arrival the time at which the agent reaches the location
+	 */
+	void offer(AgentEvent agent, long arrival) {
+		int i = size;
+		while (i > 0 && (arrivals[i - 1] > arrival || (arrivals[i - 1] == arrival && agents[i - 1].id > agent.id))) {
+			i--;
+		}
+		if (i == agents.length) {
+			return;
+		}
+		int last = Math.min(size, agents.length - 1);
+		System.arraycopy(agents, i, agents, i + 1, last - i);
+		System.arraycopy(arrivals, i, arrivals, i + 1, last - i);
+		agents[i] = agent;
+		arrivals[i] = arrival;
+		if (size < agents.length) {
+			size++;
+		}
+	}
+}
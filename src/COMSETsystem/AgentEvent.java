@@ -1,10 +1,5 @@
 package COMSETsystem;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
 /**
  *
  * @author TijanaKlimovic
@@ -51,6 +46,18 @@ public class AgentEvent extends Event {
 	 */
 	long startSearchTime;
 
+	/*
+	 * The location and time of a planSearchRoute call that is deferred until the agent is next
+	 * called, so that it runs along with the nextIntersection call (see ParallelAgentMoves);
+	 * null if there is none.
+	 */
+	private LocationOnRoad deferredPlanLocation = null;
+	private long deferredPlanTime;
+
+	// The group and the position within the group of this agent in the EmptyAgentIndex; -1 if not indexed.
+	int indexGroup = -1;
+	int indexSlot = -1;
+
 	/**
 	 * Constructor for class AgentEvent.
 	 *
@@ -58,35 +65,39 @@ public class AgentEvent extends Event {
 	 * @param loc this agent's location when it becomes empty.
 	 */
 	public AgentEvent(LocationOnRoad loc, long startedSearch, Simulator simulator) {
+		this(loc, startedSearch, simulator, true);
+	}
+
+	/**
+	 * Constructor for class AgentEvent.
+	 *
+	 * @param time when this agent starts search.
+	 * @param loc this agent's location when it becomes empty.
+	 * @param createAgent false to leave the agent to be created later, e.g., by AgentFactory.createAgents
+	 */
+	public AgentEvent(LocationOnRoad loc, long startedSearch, Simulator simulator, boolean createAgent) {
 		super(startedSearch, simulator);
 		this.loc = loc;
 		this.startSearchTime = startedSearch;
 		this.eventCause = DROPPING_OFF; // The introduction of an agent is considered a drop-off event.
-		simulator.emptyAgents.add(this); 
-		try {
-			Constructor<? extends BaseAgent> cons = simulator.agentClass.getConstructor(Long.TYPE, CityMap.class);
-			agent = cons.newInstance(id, simulator.mapForAgents);
-		} catch (NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
-			e.printStackTrace();
-		}		
+		simulator.markAgentEmpty(this);
+		if (createAgent) {
+			initAgent();
+		}
 	}
 
 	/**
 	 * Initializes the agent corresponding to this AgentEvent.
 	 */
 	public void initAgent() {
-		try {
-			Constructor<? extends BaseAgent> cons = simulator.agentClass.getConstructor(Long.TYPE, CityMap.class);
-			agent = cons.newInstance(id, simulator.mapForAgents);
-		} catch (NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
-			e.printStackTrace();
-		}
+		agent = simulator.agentFactory.create(id);
 	}
 
 	@Override
 	Event trigger() throws Exception {
-		Logger.getLogger(this.getClass().getName()).log(Level.INFO, "******** AgentEvent id = " + id+ " triggered at time " + time, this);
-		Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Loc = " + loc, this);
+		if (simulator.trace.enabled) {
+			simulator.trace.agentTriggered(id, time, eventCause, loc);
+		}
 		Event e;
 		if (eventCause == DROPPING_OFF) {
 			e = dropoffHandler();
@@ -101,11 +112,26 @@ public class AgentEvent extends Event {
 	 * The handler of an INTERSECTION_REACHED event.
 	 */
 	Event intersectionReachedHandler() throws Exception{
+		return moveTo(chooseNextIntersection());
+	}
+
+	/*
+	 * Ask the agent to choose the next intersection to move to. This only involves the agent and
+	 * reads the map, so that the agents that reach intersections at the same time may choose
+	 * concurrently (see ParallelAgentMoves).
+	 */
+	Intersection chooseNextIntersection() {
 		assert loc.travelTimeFromStartIntersection == loc.road.travelTime : "Agent not at an intersection.";
 
-		// Ask the agent to choose the next intersection to move to.
+		planDeferredSearchRoute();
 		LocationOnRoad locAgentCopy = simulator.agentCopy(loc);
-		Intersection nextIntersection = agent.nextIntersection(locAgentCopy, time);
+		return agent.nextIntersection(locAgentCopy, time);
+	}
+
+	/*
+	 * Move the agent to the next intersection chosen by chooseNextIntersection.
+	 */
+	Event moveTo(Intersection nextIntersection) throws Exception {
 		if (nextIntersection == null) {
 			throw new Exception("agent.move() did not return a next location");
 		}
@@ -117,10 +143,10 @@ public class AgentEvent extends Event {
 		// set location and time of the next trigger
 		Road nextRoad = loc.road.to.roadTo(nextIntersection);
 		LocationOnRoad nextLocation = new LocationOnRoad(nextRoad, nextRoad.travelTime);
+		if (simulator.trace.enabled) {
+			simulator.trace.agentMoved(id, time, nextRoad.to, time + nextRoad.travelTime);
+		}
 		setEvent(time + nextRoad.travelTime, nextLocation, INTERSECTION_REACHED);
-		
-		Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Move to " + nextRoad.to, this);
-		Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Next trigger time = " + time, this);
 		return this;
 	}
 
@@ -129,31 +155,40 @@ public class AgentEvent extends Event {
 	 */
 	Event dropoffHandler() {
 		startSearchTime = time;
-		Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Dropoff at " + loc, this);
 		// Only check the following when an agent drops off a resource. 
 		// Check if there are resources waiting to be picked up by an agent.
 		if (simulator.waitingResources.size() > 0) {
 			// get the closest resource that will not expire before the agent reaches it
 			ResourceEvent bestResource = null;
 			long earliest = Long.MAX_VALUE;
-			for (ResourceEvent res : simulator.waitingResources) {
-				// If res is in waitingResources, then it must have not expired yet
-				// testing null pointer exception 
-				long travelTime = Long.MAX_VALUE;
-				if (loc == null) {
-					System.out.println("loc is null");
-				} else if (res.pickupLoc == null) {
-					System.out.println("res.loc is null");
-				} else {
-					travelTime = simulator.map.travelTimeBetween(loc, res.pickupLoc);
+			if (simulator.assignmentWindow > 0) {
+				// In batch mode the waiting resources are assigned by the next AssignmentEvent.
+			} else if (simulator.waitingResourceIndex != null) {
+				// Only the resources that may be reached before their deadline are checked.
+				bestResource = simulator.waitingResourceIndex.earliestReachable(loc, time);
+				if (bestResource != null) {
+					earliest = time + simulator.map.travelTimeBetween(loc, bestResource.pickupLoc);
 				}
+			} else {
+				for (ResourceEvent res : simulator.waitingResources) {
+					// If res is in waitingResources, then it must have not expired yet
+					// testing null pointer exception 
+					long travelTime = Long.MAX_VALUE;
+					if (loc == null) {
+						System.out.println("loc is null");
+					} else if (res.pickupLoc == null) {
+						System.out.println("res.loc is null");
+					} else {
+						travelTime = simulator.map.travelTimeBetween(loc, res.pickupLoc);
+					}
 
-				if (travelTime != Long.MAX_VALUE) {
-					// if the resource is reachable before expiration
-					long arriveTime = time + travelTime;
-					if (arriveTime + simulator.ResourceMaximumLifeTime <= res.expirationTime && arriveTime < earliest) {
-						earliest = arriveTime;
-						bestResource = res;
+					if (travelTime != Long.MAX_VALUE) {
+						// if the resource is reachable before expiration
+						long arriveTime = time + travelTime;
+						if (arriveTime + simulator.ResourceMaximumLifeTime <= res.expirationTime && arriveTime < earliest) {
+							earliest = arriveTime;
+							bestResource = res;
+						}
 					}
 				}
 			}
@@ -176,27 +211,29 @@ public class AgentEvent extends Event {
 	            assignedTo(loc, time, bestResource.id, bestResource.pickupLoc, bestResource.dropoffLoc);
 
 				// "Label" the agent as occupied
-				simulator.emptyAgents.remove(this);
+				simulator.markAgentOccupied(this);
 
-				simulator.waitingResources.remove(bestResource);
+				simulator.removeWaitingResource(bestResource);
 				simulator.events.remove(bestResource); // resource is pickup and does not expire anymore. 
 
+				if (simulator.trace.enabled) {
+					simulator.trace.agentAssigned(id, bestResource.id, time, false, loc, bestResource.pickupLoc, bestResource.dropoffLoc,
+							approachTime, bestResource.tripTime, cruiseTime, waitTime, earliest + bestResource.tripTime);
+				}
+
 				// set time and location of the next trigger 
 				setEvent(earliest + bestResource.tripTime, bestResource.dropoffLoc, DROPPING_OFF);
 
-				Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Assigned to resource id = " + bestResource.id + " with pickupLoc at " + bestResource.pickupLoc + " and dropoffLoc at " + bestResource.dropoffLoc, this);
-				Logger.getLogger(this.getClass().getName()).log(Level.INFO, "From agent to resource = " + approachTime + " seconds.", this);
-				Logger.getLogger(this.getClass().getName()).log(Level.INFO, "From pickupLoc to dropoffLoc = " + (time - earliest) + " seconds.", this);
-				Logger.getLogger(this.getClass().getName()).log(Level.INFO, "cruise time = " + cruiseTime + " seconds.", this);
-				Logger.getLogger(this.getClass().getName()).log(Level.INFO, "approach time = " + approachTime + " seconds.", this);
-				Logger.getLogger(this.getClass().getName()).log(Level.INFO, "search time = " + searchTime + " seconds.", this);
-				Logger.getLogger(this.getClass().getName()).log(Level.INFO, "wait time = " + waitTime + " seconds.", this);
-				Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Next trigger time = " + time, this);
 				return this;
 			} else {
 				// Let agent plan a search route after the current dropoff.
 				LocationOnRoad locAgentCopy = simulator.agentCopy(loc);
-				agent.planSearchRoute(locAgentCopy, time);
+				if (simulator.deferSearchRoutes) {
+					deferredPlanLocation = locAgentCopy;
+					deferredPlanTime = time;
+				} else {
+					agent.planSearchRoute(locAgentCopy, time);
+				}
 			}
 		}
 
@@ -204,7 +241,7 @@ public class AgentEvent extends Event {
 		// so if the agent was not empty, make it empty for other resources
 		if (!simulator.emptyAgents.contains(this)) {
 			// "Label" the agent as empty.
-			simulator.emptyAgents.add(this);
+			simulator.markAgentEmpty(this);
 		}
 		// move to the end intersection of the current road
 		long nextEventTime = time + loc.road.travelTime - loc.travelTimeFromStartIntersection;
@@ -215,15 +252,29 @@ public class AgentEvent extends Event {
 	}
 
 	public void assignedTo(LocationOnRoad currentLocation, long currentTime, long resourceId, LocationOnRoad resourcePickupLocation, LocationOnRoad resourceDropoffLocation) {
+		planDeferredSearchRoute();
 		LocationOnRoad currentLocationAgentCopy = simulator.agentCopy(currentLocation);
 		LocationOnRoad resourcePickupLocationAgentCopy = simulator.agentCopy(resourcePickupLocation);
 		LocationOnRoad resourceDropoffLocationAgentCopy = simulator.agentCopy(resourceDropoffLocation);
 		agent.assignedTo(currentLocationAgentCopy, currentTime, resourceId, resourcePickupLocationAgentCopy, resourceDropoffLocationAgentCopy);
 	}
 	
+	/*
+	 * Make the deferred planSearchRoute call, if any, before the agent is called again.
+	 */
+	private void planDeferredSearchRoute() {
+		if (deferredPlanLocation != null) {
+			agent.planSearchRoute(deferredPlanLocation, deferredPlanTime);
+			deferredPlanLocation = null;
+		}
+	}
+
 	public void setEvent(long time, LocationOnRoad loc, int eventCause) {
 		this.time = time;
 		this.loc = loc;
 		this.eventCause = eventCause;
+		if (indexGroup >= 0) {
+			simulator.emptyAgentIndex.update(this);
+		}
 	}
 }
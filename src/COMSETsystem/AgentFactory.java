@@ -0,0 +1,125 @@
+package COMSETsystem;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The AgentFactory creates the agents of a simulation. The constructor of the agent class, which
+ * takes the id of the agent and the map, is looked up once. The agents of a ThreadSafeAgent class
+ * are created in several threads when there are at least PARALLEL_AGENTS of them: the first agent
+ * is created alone, so that it may set up what all the agents share, and the others concurrently.
+ */
+public class AgentFactory {
+
+	// The smallest number of agents that are created in several threads.
+	static final int PARALLEL_AGENTS = 1024;
+
+	// The number of agents that are created in one task.
+	static final int CHUNK = 64;
+
+	private final Simulator simulator;
+
+	// The constructor of the agent class as (long, CityMap)BaseAgent; null if there is none.
+	private final MethodHandle constructor;
+
+	/**
+	 * Constructor of AgentFactory.
+	 *
+	 * @param simulator the simulator whose agent class is to be instantiated
+	 */
+	AgentFactory(Simulator simulator) {
+		this.simulator = simulator;
+		MethodHandle handle = null;
+		try {
+			handle = MethodHandles.publicLookup()
+					.findConstructor(simulator.agentClass, MethodType.methodType(void.class, Long.TYPE, CityMap.class))
+					.asType(MethodType.methodType(BaseAgent.class, Long.TYPE, CityMap.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			e.printStackTrace();
+		}
+		constructor = handle;
+	}
+
+	/**
+	 * @return true if the agents may be called from several threads
+	 */
+	public boolean isThreadSafe() {
+		return ThreadSafeAgent.class.isAssignableFrom(simulator.agentClass);
+	}
+
+	/**
+	 * Create an agent.
+	 *
+	 * @param id the id of the agent
+	 * @return the agent; null if it could not be created
+	 */
+	public BaseAgent create(long id) {
+		if (constructor == null) {
+			return null;
+		}
+		try {
+			return (BaseAgent) constructor.invokeExact(id, simulator.mapForAgents);
+		} catch (Throwable e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Create the agents of agent events, in several threads if the agent class allows it and the
+	 * simulator runs several threads (see Simulator.setSimulationThreads).
+	 *
+	 * @param agentEvents the agent events without agents
+	 */
+	public void createAgents(List<AgentEvent> agentEvents) {
+		if (agentEvents.isEmpty()) {
+			return;
+		}
+		if (simulator.simulationThreads <= 1 || agentEvents.size() < PARALLEL_AGENTS || !isThreadSafe()) {
+			for (AgentEvent agentEvent : agentEvents) {
+				agentEvent.agent = create(agentEvent.id);
+			}
+			return;
+		}
+		AgentEvent first = agentEvents.get(0);
+		first.agent = create(first.id);
+		ForkJoinPool pool = new ForkJoinPool(simulator.simulationThreads);
+		try {
+			pool.invoke(new CreateTask(agentEvents, 1, agentEvents.size()));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private class CreateTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<AgentEvent> agentEvents;
+		private final int from;
+		private final int to;
+
+		CreateTask(List<AgentEvent> agentEvents, int from, int to) {
+			this.agentEvents = agentEvents;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= CHUNK) {
+				for (int i = from; i < to; i++) {
+					AgentEvent agentEvent = agentEvents.get(i);
+					agentEvent.agent = create(agentEvent.id);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new CreateTask(agentEvents, from, middle), new CreateTask(agentEvents, middle, to));
+		}
+	}
+}
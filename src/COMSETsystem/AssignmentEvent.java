@@ -0,0 +1,166 @@
+package COMSETsystem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The AssignmentEvent assigns the waiting resources to the empty agents in batches, when the
+ * simulator runs in batch mode (see Simulator.setAssignmentWindow). In batch mode a resource that
+ * becomes available is not assigned right away. It waits, and an agent that drops off a resource
+ * does not look for a waiting resource either. Instead, the AssignmentEvent is triggered once
+ * every assignment window and matches the waiting resources with the empty agents at once.
+ *
+ * Every waiting resource gets as candidates the CANDIDATES empty agents that reach it the
+ * earliest, among those that reach it before it expires. The resources are then matched with
+ * their candidates so that as many resources as possible are assigned, and among those
+ * matchings the total approach time is the smallest (see MinCostMatching).
+ */
+public class AssignmentEvent extends Event {
+
+	// The number of candidate agents of a resource.
+	static final int CANDIDATES = 8;
+
+	// The time between two batches in seconds
+	private final long window;
+
+	/**
+	 * Constructor for class AssignmentEvent.
+	 *
+	 * @param time the time of the first batch
+	 * @param window the time between two batches in seconds
+	 * @param simulator the simulator object
+	 */
+	public AssignmentEvent(long time, long window, Simulator simulator) {
+		super(time, simulator);
+		this.window = window;
+	}
+
+	/**
+	 * Assign the waiting resources to the empty agents and schedule the next batch.
+	 */
+	@Override
+	Event trigger() throws Exception {
+		if (!simulator.waitingResources.isEmpty() && !simulator.emptyAgents.isEmpty()) {
+			assignBatch();
+		}
+		time += window;
+		return this;
+	}
+
+	private void assignBatch() {
+		ArrayList<ResourceEvent> resources = new ArrayList<>(simulator.waitingResources);
+		ArrayList<AgentEvent> agents = new ArrayList<>();
+		HashMap<AgentEvent, Integer> agentNumbers = new HashMap<>();
+
+		// Find the candidate agents of every resource. With n intersections and e empty agents spread
+		// over the map, a search of the EmptyAgentIndex visits about n * CANDIDATES / e intersections
+		// before it finds the candidates, while a scan computes e travel times. The index is only
+		// worth it when the empty agents are dense enough.
+		boolean useIndex = simulator.emptyAgentIndex != null
+				&& (long) simulator.emptyAgents.size() * simulator.emptyAgents.size() > 4L * CANDIDATES * simulator.map.intersections().size();
+		AgentCandidates candidates = new AgentCandidates(CANDIDATES);
+		ArrayList<int[]> candidateAgents = new ArrayList<>(resources.size());
+		ArrayList<long[]> candidateCosts = new ArrayList<>(resources.size());
+		for (ResourceEvent resource : resources) {
+			findCandidates(resource, useIndex, candidates);
+			int[] numbers = new int[candidates.size];
+			long[] costs = new long[candidates.size];
+			for (int i = 0; i < candidates.size; i++) {
+				Integer number = agentNumbers.get(candidates.agents[i]);
+				if (number == null) {
+					number = agents.size();
+					agents.add(candidates.agents[i]);
+					agentNumbers.put(candidates.agents[i], number);
+				}
+				numbers[i] = number;
+				costs[i] = candidates.arrivals[i] - time;
+			}
+			candidateAgents.add(numbers);
+			candidateCosts.add(costs);
+		}
+		if (agents.isEmpty()) {
+			return;
+		}
+
+		MinCostMatching matching = new MinCostMatching(resources.size(), agents.size());
+		for (int r = 0; r < resources.size(); r++) {
+			int[] numbers = candidateAgents.get(r);
+			long[] costs = candidateCosts.get(r);
+			for (int i = 0; i < numbers.length; i++) {
+				matching.addCandidate(r, numbers[i], costs[i]);
+			}
+		}
+		int[] match = matching.solve();
+
+		// Make the assignments in increasing order of resource id.
+		for (int r = 0; r < resources.size(); r++) {
+			if (match[r] >= 0) {
+				assign(resources.get(r), agents.get(match[r]));
+			}
+		}
+	}
+
+	/**
+	 * Find the empty agents that reach a resource the earliest before it expires.
+	 */
+	private void findCandidates(ResourceEvent resource, boolean useIndex, AgentCandidates candidates) {
+		long latestArrival = resource.availableTime + simulator.ResourceMaximumLifeTime;
+		if (useIndex) {
+			simulator.emptyAgentIndex.nearestAgents(resource.pickupLoc, time, latestArrival, candidates);
+			return;
+		}
+		candidates.clear();
+		for (AgentEvent agent : simulator.emptyAgents) {
+			long arrival = time + simulator.map.travelTimeBetween(agentLocationOnRoad(agent), resource.pickupLoc);
+			if (arrival <= latestArrival && arrival <= candidates.bound()) {
+				candidates.offer(agent, arrival);
+			}
+		}
+	}
+
+	/**
+	 * Assign a resource to an agent, in the same way as ResourceEvent.becomeAvailableHandler does.
+	 */
+	private void assign(ResourceEvent resource, AgentEvent agent) {
+		LocationOnRoad agentLocationOnRoad = agentLocationOnRoad(agent);
+		long earliest = time + simulator.map.travelTimeBetween(agentLocationOnRoad, resource.pickupLoc);
+
+		// update the statistics
+		long cruiseTime = time - agent.startSearchTime;
+		long approachTime = earliest - time;
+		long searchTime = cruiseTime + approachTime;
+		long waitTime = earliest - resource.availableTime;
+
+		simulator.totalAgentCruiseTime += cruiseTime;
+		simulator.totalAgentApproachTime += approachTime;
+		simulator.totalAgentSearchTime += searchTime;
+		simulator.totalResourceWaitTime += waitTime;
+		simulator.totalResourceTripTime += resource.tripTime;
+		simulator.totalAssignments++;
+
+		// Inform the assignment to the agent.
+		agent.assignedTo(agentLocationOnRoad, time, resource.id, resource.pickupLoc, resource.dropoffLoc);
+
+		// "Label" the agent as occupied and the resource as picked up, which does not expire anymore.
+		simulator.markAgentOccupied(agent);
+		simulator.removeWaitingResource(resource);
+		simulator.events.remove(resource);
+
+		simulator.events.remove(agent);
+		if (simulator.trace.enabled) {
+			simulator.trace.agentAssigned(agent.id, resource.id, time, true, agent.loc, resource.pickupLoc, resource.dropoffLoc,
+					approachTime, resource.tripTime, cruiseTime, waitTime, earliest + resource.tripTime);
+		}
+		agent.setEvent(earliest + resource.tripTime, resource.dropoffLoc, AgentEvent.DROPPING_OFF);
+		simulator.events.add(agent);
+	}
+
+	/**
+	 * The current location of an empty agent; see ResourceEvent.agentLocationOnRoad.
+	 */
+	private LocationOnRoad agentLocationOnRoad(AgentEvent agent) {
+		long travelTimeToEndIntersection = agent.time - time;
+		long travelTimeFromStartIntersection = agent.loc.road.travelTime - travelTimeToEndIntersection;
+		return new LocationOnRoad(agent.loc.road, travelTimeFromStartIntersection);
+	}
+}
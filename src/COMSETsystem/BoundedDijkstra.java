@@ -0,0 +1,111 @@
+package COMSETsystem;
+
+import java.util.Arrays;
+
+/**
+ * A single-source Dijkstra that settles the intersections one at a time in increasing order of
+ * travel time, so that the caller can stop the search as soon as the remaining intersections are
+ * too far away to matter. The search runs over a forward RoadGraph to find the travel times from
+ * the source, or over a reversed one to find the travel times to the source.
+ *
+ * The state is reused between searches and is reset in time proportional to the number of
+ * intersections reached rather than the size of the map.
+ */
+class BoundedDijkstra {
+
+	// the roads to search
+	private final RoadGraph graph;
+
+	// the travel time of every intersection reached by the current search
+	private final long[] cost;
+
+	// the intersections whose cost has been set by the current search
+	private final int[] touched;
+	private int touchedCount = 0;
+
+	// the intersections reached but not settled yet
+	private final IndexedMinHeap queue;
+
+	/**
+	 * Constructor of BoundedDijkstra.
+	 *
+	 * @param graph the roads to search
+	 */
+	BoundedDijkstra(RoadGraph graph) {
+		this.graph = graph;
+		cost = new long[graph.size];
+		Arrays.fill(cost, Long.MAX_VALUE);
+		touched = new int[graph.size];
+		queue = new IndexedMinHeap(graph.size);
+	}
+
+	/**
+	 * Start a new search, discarding the current one.
+	 *
+	 * @param source pathTableIndex of the source intersection
+	 */
+	void start(int source) {
+		reset();
+		touch(source, 0);
+		queue.insert(source, 0);
+	}
+
+	/**
+	 * @return true if there are intersections reached but not settled yet
+	 */
+	boolean hasNext() {
+		return !queue.isEmpty();
+	}
+
+	/**
+	 * @return the travel time of the intersection to be settled next
+	 */
+	long nextCost() {
+		return cost[queue.peek()];
+	}
+
+	/**
+	 * Settle the closest intersection not settled yet and relax the roads leaving it.
+	 * Ties are broken by the smaller pathTableIndex.
+	 *
+	 * @return pathTableIndex of the settled intersection
+	 */
+	int next() {
+		int u = queue.poll();
+		for (int k = graph.first[u]; k < graph.first[u + 1]; k++) {
+			int v = graph.other[k];
+			long ncost = cost[u] + graph.travelTime[k];
+			if (ncost < cost[v]) {
+				if (queue.contains(v)) {
+					cost[v] = ncost;
+					queue.decreaseKey(v, ncost);
+				} else if (cost[v] == Long.MAX_VALUE) {
+					touch(v, ncost);
+					queue.insert(v, ncost);
+				}
+			}
+		}
+		return u;
+	}
+
+	/**
+	 * @param intersection pathTableIndex of a settled intersection
+	 * @return the travel time between the source and the intersection
+	 */
+	long cost(int intersection) {
+		return cost[intersection];
+	}
+
+	private void touch(int intersection, long initialCost) {
+		cost[intersection] = initialCost;
+		touched[touchedCount++] = intersection;
+	}
+
+	private void reset() {
+		for (int i = 0; i < touchedCount; i++) {
+			cost[touched[i]] = Long.MAX_VALUE;
+		}
+		touchedCount = 0;
+		queue.clear();
+	}
+}
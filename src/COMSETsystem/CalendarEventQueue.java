@@ -0,0 +1,211 @@
+package COMSETsystem;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * An EventScheduler implemented as a calendar queue with one bucket per second. Event times are
+ * whole seconds, and nearly every event is scheduled within a few minutes of the current time,
+ * e.g., the next intersection of an agent or the expiration of a resource. The queue therefore
+ * keeps a window of consecutive seconds starting at the earliest pending event, and puts every
+ * event of the window in the bucket of its second. Since all the events of a bucket have the same
+ * time, a bucket only orders its events by id, in a small EventQueue. Adding an event takes
+ * O(log k) for a bucket of k events, and polling advances through the window one second at a time.
+ *
+ * Events beyond the window are kept in an overflow EventQueue and moved into their buckets as the
+ * window advances. Events are polled in exactly the same order as from an EventQueue.
+ */
+public class CalendarEventQueue extends AbstractQueue<Event> implements EventScheduler {
+
+	// The default number of seconds covered by the window; a little over an hour.
+	public static final int DEFAULT_WINDOW = 4096;
+
+	// The initial capacity of a bucket
+	private static final int BUCKET_CAPACITY = 16;
+
+	// the buckets of the window, indexed by time & mask; null until first used
+	private final EventQueue[] buckets;
+
+	// the number of seconds covered by the window minus one; the window is a power of two
+	private final long mask;
+
+	// the first second of the window; every event in [base, base + buckets.length) is in a bucket
+	private long base = 0;
+
+	// the number of events in the buckets
+	private int bucketSize = 0;
+
+	// the events after the window
+	private final EventQueue overflow = new EventQueue();
+
+	/**
+	 * Constructor of CalendarEventQueue with the default window.
+	 */
+	public CalendarEventQueue() {
+		this(DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Constructor of CalendarEventQueue.
+	 *
+	 * @param window the number of seconds covered by the window, rounded up to a power of two
+	 */
+	public CalendarEventQueue(int window) {
+		int length = Integer.highestOneBit(Math.max(window, 1) - 1) << 1;
+		buckets = new EventQueue[Math.max(length, 1)];
+		mask = buckets.length - 1;
+	}
+
+	@Override
+	public int size() {
+		return bucketSize + overflow.size();
+	}
+
+	@Override
+	public boolean offer(Event event) {
+		if (size() == 0) {
+			base = event.time;
+		} else if (event.time < base) {
+			rebase(event.time);
+		}
+		if (event.time - base < buckets.length) {
+			bucket(event.time).add(event);
+			bucketSize++;
+		} else {
+			overflow.add(event);
+		}
+		return true;
+	}
+
+	@Override
+	public Event peek() {
+		if (!advance()) {
+			return null;
+		}
+		return buckets[(int) (base & mask)].peek();
+	}
+
+	@Override
+	public Event poll() {
+		if (!advance()) {
+			return null;
+		}
+		bucketSize--;
+		return buckets[(int) (base & mask)].poll();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Event)) {
+			return false;
+		}
+		Event event = (Event) o;
+		if (inWindow(event.time)) {
+			EventQueue bucket = buckets[(int) (event.time & mask)];
+			return bucket != null && bucket.contains(event);
+		}
+		return overflow.contains(event);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!(o instanceof Event)) {
+			return false;
+		}
+		Event event = (Event) o;
+		if (inWindow(event.time)) {
+			EventQueue bucket = buckets[(int) (event.time & mask)];
+			if (bucket != null && bucket.remove(event)) {
+				bucketSize--;
+				return true;
+			}
+			return false;
+		}
+		return overflow.remove(event);
+	}
+
+	@Override
+	public void clear() {
+		for (EventQueue bucket : buckets) {
+			if (bucket != null) {
+				bucket.clear();
+			}
+		}
+		bucketSize = 0;
+		overflow.clear();
+	}
+
+	/**
+	 * Iterates over a snapshot of the events in no particular order.
+	 */
+	@Override
+	public Iterator<Event> iterator() {
+		ArrayList<Event> events = new ArrayList<>(size());
+		for (EventQueue bucket : buckets) {
+			if (bucket != null) {
+				events.addAll(bucket);
+			}
+		}
+		events.addAll(overflow);
+		return events.iterator();
+	}
+
+	private boolean inWindow(long time) {
+		return time >= base && time - base < buckets.length;
+	}
+
+	private EventQueue bucket(long time) {
+		int i = (int) (time & mask);
+		if (buckets[i] == null) {
+			buckets[i] = new EventQueue(BUCKET_CAPACITY);
+		}
+		return buckets[i];
+	}
+
+	/**
+	 * Move the window forward to the earliest pending event.
+	 *
+	 * @return false if there are no pending events
+	 */
+	private boolean advance() {
+		if (bucketSize == 0) {
+			if (overflow.isEmpty()) {
+				return false;
+			}
+			// Jump directly to the earliest event after the window.
+			base = overflow.peek().time;
+			migrate();
+		}
+		while (buckets[(int) (base & mask)] == null || buckets[(int) (base & mask)].isEmpty()) {
+			base++;
+			migrate();
+		}
+		return true;
+	}
+
+	/**
+	 * Move the events of the overflow that fall into the window into their buckets.
+	 */
+	private void migrate() {
+		while (!overflow.isEmpty() && overflow.peek().time - base < buckets.length) {
+			bucket(overflow.peek().time).add(overflow.poll());
+			bucketSize++;
+		}
+	}
+
+	/**
+	 * Move the window back to start at an earlier second. Only happens if an event is added
+	 * before the earliest pending event.
+	 */
+	private void rebase(long time) {
+		for (EventQueue bucket : buckets) {
+			while (bucket != null && !bucket.isEmpty()) {
+				overflow.add(bucket.poll());
+			}
+		}
+		bucketSize = 0;
+		base = time;
+		migrate();
+	}
+}
@@ -4,24 +4,28 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import com.google.common.collect.ImmutableList;
 import net.iakovlev.timeshape.TimeZoneEngine;
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
 import DataParsing.GeoProjector;
-import DataParsing.KdTree;
+import DataParsing.BalancedKdTree;
 
-import java.util.PriorityQueue;
-import java.awt.geom.Point2D;
 import java.time.ZoneId;
 
 
@@ -42,10 +46,10 @@ public class CityMap {
 	private GeoProjector projector;
 
 	// kdTree for map matching
-	private KdTree kdTree;
+	private BalancedKdTree kdTree;
 
 	// Shortest travel-time path table.
-	private ImmutableList<ImmutableList<PathTableEntry>> immutablePathTable;
+	private PathTable pathTable;
 	
 	// A map from an intersection's path table index to the intersection itself.
 	private HashMap<Integer, Intersection> intersectionsByPathTableIndex;
@@ -54,7 +58,7 @@ public class CityMap {
 	 * Constructor of CityMap
 	 */
 	public CityMap(Map<Long, Intersection> intersections, List<Road> roads, 
-			GeoProjector projector, KdTree kdTree) {
+			GeoProjector projector, BalancedKdTree kdTree) {
 		this.intersections = intersections;
 		this.projector = projector;
 		this.kdTree = kdTree;
@@ -86,7 +90,7 @@ public class CityMap {
 	 * @return the time in seconds it takes to go from source to destination
 	 */
 	public long travelTimeBetween (Intersection source, Intersection destination) {
-		return immutablePathTable.get(source.pathTableIndex).get(destination.pathTableIndex).travelTime;
+		return pathTable.travelTime(source.pathTableIndex, destination.pathTableIndex);
 	}
 
 
@@ -129,9 +133,7 @@ public class CityMap {
 	 * @return The closest link to the given point
 	 */
 	public Link getNearestLink(double longitude, double latitude){
-		double[] xy = projector.fromLatLon(latitude, longitude);
-		Point2D p = new Point2D.Double(xy[0], xy[1]);
-		return kdTree.nearest(p);    	
+		return kdTree.nearest(projector.toX(longitude), projector.toY(latitude));
 	}
 
 	/**
@@ -139,74 +141,159 @@ public class CityMap {
 	 * from each intersection using Dijkstra.
 	 */
 	public void calcTravelTimes() {
-		ArrayList<ArrayList<PathTableEntry>> pathTable;
+		calcTravelTimes(1);
+	}
+
+	/**
+	 * @return the intersections of the map indexed by pathTableIndex
+	 */
+	Intersection[] intersectionArray() {
+		Intersection[] intersectionArray = new Intersection[intersections.size()];
+		for (Intersection intersection : intersections.values()) {
+			intersectionArray[intersection.pathTableIndex] = intersection;
+		}
+		return intersectionArray;
+	}
 
+	/**
+	 * Compute all-pair shortest travel times using the given number of threads. Each thread runs
+	 * one-to-all Dijkstra for a share of the source intersections with its own costs and queue, and
+	 * fills the rows of the path table that belong to those sources. Since every row is computed
+	 * by exactly the same single-source procedure, the resulting table does not depend on the
+	 * number of threads.
+	 *
+	 * @param threads the number of threads; 1 or less computes the table in the calling thread
+	 */
+	public void calcTravelTimes(int threads) {
 		// initialize path table
-		pathTable = new ArrayList<ArrayList<PathTableEntry>>();
-		for (int i = 0; i < intersections.size(); i++) {
-			ArrayList<PathTableEntry> aList = new ArrayList<PathTableEntry>();
-			for (int j = 0; j < intersections.size(); j++) {
-				aList.add(null);
+		HeapPathTable table = new HeapPathTable(intersections.size());
+
+		Intersection[] intersectionArray = intersectionArray();
+
+		RoadGraph graph = RoadGraph.forward(intersectionArray);
+
+		if (threads <= 1) {
+			DijkstraWorker worker = new DijkstraWorker(graph, table);
+			for (int source = 0; source < intersectionArray.length; source++) {
+				worker.computeRow(source);
 			}
-			pathTable.add(aList);
+			pathTable = table;
+			return;
 		}
 
-		// creates a queue entry for each intersection
-		HashMap<Intersection, DijkstraQueueEntry> queueEntry = new HashMap<>();
-		for (Intersection i : intersections.values()) {
-			queueEntry.put(i, new DijkstraQueueEntry(i));
+		// Sources are handed out one at a time so that the threads stay busy until the end.
+		AtomicInteger nextSource = new AtomicInteger(0);
+		List<Callable<Void>> workers = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			workers.add(() -> {
+				DijkstraWorker worker = new DijkstraWorker(graph, table);
+				int source;
+				while ((source = nextSource.getAndIncrement()) < intersectionArray.length) {
+					worker.computeRow(source);
+				}
+				return null;
+			});
 		}
-
-		for (Intersection source : intersections.values()) {
-			// 'reset' every queue entry
-			for (DijkstraQueueEntry entry : queueEntry.values()) {
-				entry.cost = Long.MAX_VALUE;
-				entry.inQueue = true;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for (Future<Void> future : pool.invokeAll(workers)) {
+				future.get();
 			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Failed to compute the path table", e);
+		} finally {
+			pool.shutdown();
+		}
+		pathTable = table;
+	}
 
-			// source is set at distance 0
-			DijkstraQueueEntry sourceEntry = queueEntry.get(source);
-			sourceEntry.cost = 0;
-			pathTable.get(source.pathTableIndex).set(source.pathTableIndex, new PathTableEntry(0L, source.pathTableIndex));
+	/**
+	 * One-to-all Dijkstra over the map. A worker owns its costs and queue so that several
+	 * workers can fill different rows of the path table at the same time.
+	 */
+	private static class DijkstraWorker {
+		// the roads of the map
+		final RoadGraph graph;
+
+		// the table to fill
+		final HeapPathTable table;
+
+		// the cost of every intersection from the current source, indexed by pathTableIndex
+		final long[] cost;
+
+		// whether the shortest travel time to an intersection is final
+		final boolean[] settled;
+
+		// intersections reached but not settled yet, keyed by cost
+		final IndexedMinHeap queue;
 
-			PriorityQueue<DijkstraQueueEntry> queue = new PriorityQueue<>(queueEntry.values());
+		DijkstraWorker(RoadGraph graph, HeapPathTable table) {
+			this.graph = graph;
+			this.table = table;
+			cost = new long[graph.size];
+			settled = new boolean[graph.size];
+			queue = new IndexedMinHeap(graph.size);
+		}
+
+		/**
+		 * Compute the row of the path table for a given source.
+		 * @param source pathTableIndex of the source intersection
+		 */
+		void computeRow(int source) {
+			// 'reset' every intersection
+			Arrays.fill(cost, Long.MAX_VALUE);
+			Arrays.fill(settled, false);
+
+			// source is set at distance 0
+			cost[source] = 0;
+			table.set(source, source, 0L, source);
+			queue.insert(source, 0);
 
 			while (!queue.isEmpty()) {
-				DijkstraQueueEntry entry = queue.poll();
-				entry.inQueue = false;
-
-				for (Road r : entry.intersection.getRoadsFrom()) {
-					DijkstraQueueEntry v = queueEntry.get(r.to);
-					if (!v.inQueue) continue;
-					long ncost = entry.cost + r.travelTime;
-					if (v.cost > ncost) {
-						queue.remove(v);
-						v.cost = ncost;
-						pathTable.get(source.pathTableIndex).set(v.intersection.pathTableIndex, new PathTableEntry(v.cost, entry.intersection.pathTableIndex));
-						queue.add(v);
+				int u = queue.poll();
+				settled[u] = true;
+
+				for (int k = graph.first[u]; k < graph.first[u + 1]; k++) {
+					int v = graph.other[k];
+					if (settled[v]) continue;
+					long ncost = cost[u] + graph.travelTime[k];
+					if (cost[v] > ncost) {
+						cost[v] = ncost;
+						table.set(source, v, ncost, u);
+						if (queue.contains(v)) {
+							queue.decreaseKey(v, ncost);
+						} else {
+							queue.insert(v, ncost);
+						}
 					}
 				}
 			}
 		}
+	}
 
-		// Make the path table unmodifiable
-		makePathTableUnmodifiable(pathTable);
+	/**
+	 * @return the path table; null if it has not been computed or loaded yet
+	 */
+	PathTable pathTable() {
+		return pathTable;
 	}
 
 	/**
-	 * Make a path table unmodifiable.
-	 * @param pathTable
+	 * Use a path table that was computed earlier, e.g., loaded from a PathTableCache.
+	 * @param pathTable the path table of this map
 	 */
-	public void makePathTableUnmodifiable(ArrayList<ArrayList<PathTableEntry>> pathTable) {
-		ArrayList<ImmutableList<PathTableEntry>> aListOfImmutableList = new ArrayList<ImmutableList<PathTableEntry>>();
-		for (int i = 0; i < intersections.size(); i++) {
-			ArrayList<PathTableEntry> aListOfPathTableEntries = pathTable.get(i);
-			aListOfImmutableList.add(ImmutableList.copyOf(aListOfPathTableEntries));
-			aListOfPathTableEntries.clear();
-		}
-		pathTable.clear();
+	void setPathTable(PathTable pathTable) {
+		this.pathTable = pathTable;
+	}
 
-		immutablePathTable = ImmutableList.copyOf(aListOfImmutableList);
+	/**
+	 * Describe the memory taken by the path table, compared with the one object per
+	 * pair of intersections layout it replaces.
+	 *
+	 * @return a memory report of the path table
+	 */
+	public String pathTableMemoryReport() {
+		return pathTable.memoryReport();
 	}
 
 	/**
@@ -214,54 +301,24 @@ public class CityMap {
 	 * @param source the source intersection
 	 * @param destination the destination intersection
 	 * @return LinkedList<Intersection> an ordered list of intersections forming the path
+	 * @throws IllegalArgumentException if the destination cannot be reached from the source
 	 */
 	public LinkedList<Intersection> shortestTravelTimePath(Intersection source, Intersection destination) {
+		// The predecessors of an unreachable destination do not lead back to the source.
+		if (pathTable.travelTime(source.pathTableIndex, destination.pathTableIndex) == PathTable.UNREACHABLE) {
+			throw new IllegalArgumentException("no path from intersection " + source.id + " to intersection " + destination.id);
+		}
 		LinkedList<Intersection> path = new LinkedList<Intersection>();
 		path.addFirst(destination);
 		int current = destination.pathTableIndex;
 		while (current != source.pathTableIndex) {
-			int pred = immutablePathTable.get(source.pathTableIndex).get(current).predecessor;
+			int pred = pathTable.predecessor(source.pathTableIndex, current);
 			path.addFirst(intersectionsByPathTableIndex.get(pred));
 			current = pred;
 		}
 		return path;
 	}
 
-	private class DijkstraQueueEntry implements Comparable<DijkstraQueueEntry> {
-		Intersection intersection;
-		long cost = Long.MAX_VALUE;
-		boolean inQueue = true;
-
-		DijkstraQueueEntry(Intersection intersection) {
-			this.intersection = intersection;
-		}
-
-		@Override
-		public int compareTo(DijkstraQueueEntry j) {
-			if (this.cost < j.cost) {
-				return -1;
-			} else if (this.cost > j.cost) {
-				return 1;
-			} else if (this.intersection.id < j.intersection.id) {
-				return -1;
-			} else if (this.intersection.id > j.intersection.id) {
-				return 1;
-			} else {
-				return 0;
-			}
-		}
-	}
-
-	private class PathTableEntry {
-		final long travelTime;
-		final int predecessor;
-
-		PathTableEntry(long travelTime, int predecessor) {
-			this.travelTime = travelTime;
-			this.predecessor = predecessor;
-		}
-	}
-
 	/**
 	 * @return { @code roads }
 	 */
@@ -347,7 +404,7 @@ public class CityMap {
 		CityMap cityMap = new CityMap();
 		cityMap.intersections = intersectionsCopy;
 		cityMap.roads = roadsCopy;
-		cityMap.immutablePathTable = immutablePathTable;
+		cityMap.pathTable = pathTable;
 		cityMap.projector = projector;
 		cityMap.kdTree = kdTree;
 		
@@ -0,0 +1,179 @@
+package COMSETsystem;
+
+import java.util.ArrayList;
+
+/**
+ * The EmptyAgentIndex groups the empty agents by the end intersection of the road they are on,
+ * i.e., the intersection they are heading to. It is used to find the empty agent that can reach a
+ * resource the earliest without computing the travel time of every empty agent.
+ *
+ * An empty agent heading to intersection u arrives at u at agent.time, which is not earlier than
+ * the current time. Unless the agent is on the same road as the resource and before it, the agent
+ * reaches the resource at agent.time + D(u, r) + t, where r is the start intersection of the road
+ * of the resource, D is the shortest travel time, and t is the travel time from r to the resource.
+ * The search therefore runs Dijkstra backwards from r and visits the groups in increasing order
+ * of D(u, r). It stops as soon as currentTime + D(u, r) + t exceeds both the best arrival found
+ * so far and the latest arrival at which the resource can still be assigned. The agents on the
+ * road of the resource are checked first, since they may arrive earlier than this bound.
+ *
+ * The result is the same agent as the one found by checking all the empty agents in increasing
+ * order of id, i.e., the agent with the earliest arrival, ties broken by the smaller id.
+ */
+class EmptyAgentIndex {
+
+	// The map, used for the exact travel time of every candidate agent
+	private final CityMap map;
+
+	// The empty agents heading to each intersection, indexed by pathTableIndex
+	private final ArrayList<ArrayList<AgentEvent>> groups;
+
+	// The search for the intersections closest to a location, over the roads in reverse direction
+	private final BoundedDijkstra search;
+
+	/**
+	 * Constructor of EmptyAgentIndex.
+	 *
+	 * @param map the map the agents move on
+	 */
+	EmptyAgentIndex(CityMap map) {
+		this.map = map;
+		int size = map.intersections().size();
+		groups = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			groups.add(new ArrayList<>());
+		}
+		search = new BoundedDijkstra(RoadGraph.reverse(map.intersectionArray()));
+	}
+
+	/**
+	 * Add an empty agent.
+	 *
+	 * @param agent the agent
+	 */
+	void add(AgentEvent agent) {
+		ArrayList<AgentEvent> group = groups.get(agent.loc.road.to.pathTableIndex);
+		agent.indexGroup = agent.loc.road.to.pathTableIndex;
+		agent.indexSlot = group.size();
+		group.add(agent);
+	}
+
+	/**
+	 * Remove an agent that is no longer empty.
+	 *
+	 * @param agent the agent
+	 */
+	void remove(AgentEvent agent) {
+		ArrayList<AgentEvent> group = groups.get(agent.indexGroup);
+		AgentEvent last = group.remove(group.size() - 1);
+		if (last != agent) {
+			group.set(agent.indexSlot, last);
+			last.indexSlot = agent.indexSlot;
+		}
+		agent.indexGroup = -1;
+		agent.indexSlot = -1;
+	}
+
+	/**
+	 * Move an agent to the group of its current road after its location has changed.
+	 *
+	 * @param agent an agent in the index
+	 */
+	void update(AgentEvent agent) {
+		if (agent.indexGroup != agent.loc.road.to.pathTableIndex) {
+			remove(agent);
+			add(agent);
+		}
+	}
+
+	/**
+	 * Find the empty agent that reaches a location the earliest, provided that it arrives
+	 * no later than a given time.
+	 *
+	 * @param location the location to reach
+	 * @param time the current time
+	 * @param latestArrival the latest acceptable arrival time
+	 * @return the agent with the earliest arrival, ties broken by the smaller id;
+	 *         null if no agent arrives by latestArrival
+	 */
+	AgentEvent earliestArrival(LocationOnRoad location, long time, long latestArrival) {
+		AgentEvent best = null;
+		long bestArrival = Long.MAX_VALUE;
+
+		// The agents on the road of the location may be before it on the same road.
+		for (AgentEvent agent : groups.get(location.road.to.pathTableIndex)) {
+			long arrival = arrivalTime(agent, location, time);
+			if (arrival < bestArrival || (arrival == bestArrival && agent.id < best.id)) {
+				best = agent;
+				bestArrival = arrival;
+			}
+		}
+
+		// Visit the other agents in increasing order of travel time to the road of the location.
+		search.start(location.road.from.pathTableIndex);
+		while (search.hasNext()) {
+			long lowerBound = time + search.nextCost() + location.travelTimeFromStartIntersection;
+			if (lowerBound > bestArrival || lowerBound > latestArrival) {
+				break;
+			}
+			for (AgentEvent agent : groups.get(search.next())) {
+				long arrival = arrivalTime(agent, location, time);
+				if (arrival < bestArrival || (arrival == bestArrival && agent.id < best.id)) {
+					best = agent;
+					bestArrival = arrival;
+				}
+			}
+		}
+
+		return bestArrival <= latestArrival ? best : null;
+	}
+
+	/**
+	 * Find the k empty agents that reach a location the earliest among those that arrive
+	 * no later than a given time. Searches like earliestArrival, with the k-th earliest arrival
+	 * found so far as the bound instead of the earliest.
+	 *
+	 * @param location the location to reach
+	 * @param time the current time
+	 * @param latestArrival the latest acceptable arrival time
+	 * @param candidates receives the agents; its capacity is k
+	 */
+	void nearestAgents(LocationOnRoad location, long time, long latestArrival, AgentCandidates candidates) {
+		candidates.clear();
+		for (AgentEvent agent : groups.get(location.road.to.pathTableIndex)) {
+			long arrival = arrivalTime(agent, location, time);
+			if (arrival <= latestArrival) {
+				candidates.offer(agent, arrival);
+			}
+		}
+
+		search.start(location.road.from.pathTableIndex);
+		while (search.hasNext()) {
+			long lowerBound = time + search.nextCost() + location.travelTimeFromStartIntersection;
+			if (lowerBound > candidates.bound() || lowerBound > latestArrival) {
+				break;
+			}
+			int u = search.next();
+			if (u == location.road.to.pathTableIndex) {
+				// already checked
+				continue;
+			}
+			for (AgentEvent agent : groups.get(u)) {
+				long arrival = arrivalTime(agent, location, time);
+				if (arrival <= latestArrival) {
+					candidates.offer(agent, arrival);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The time at which an empty agent reaches a location, computed exactly as
+	 * ResourceEvent.becomeAvailableHandler does for every empty agent.
+	 */
+	private long arrivalTime(AgentEvent agent, LocationOnRoad location, long time) {
+		long travelTimeToEndIntersection = agent.time - time;
+		long travelTimeFromStartIntersection = agent.loc.road.travelTime - travelTimeToEndIntersection;
+		LocationOnRoad agentLocationOnRoad = new LocationOnRoad(agent.loc.road, travelTimeFromStartIntersection);
+		return time + map.travelTimeBetween(agentLocationOnRoad, location);
+	}
+}
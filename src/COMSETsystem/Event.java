@@ -12,28 +12,28 @@ package COMSETsystem;
  */
 public abstract class Event implements Comparable<Event> {
 
-	private static int maxId = 0;
-
 	// The time at which the event is to be triggered
 	long time;
 
 	// A reference to the Simulator
 	Simulator simulator;
 
-	/* An id that is unique among all events regardless of whether agent or resource.
+	/* An id that is unique among all events of a simulator regardless of whether agent or resource.
 	 * To facilitate solving ties of trigger time.
 	 */
 	long id;  
 
+	// The position of this event in the EventQueue it is in; -1 if it is not in an event queue.
+	int heapIndex = -1;
+
 	/**
 	 * Constructor for class Event
 	 *
-	 * @param id the unique id among all events
 	 * @param time core to this class, indicates when this event will trigger.
 	 * @param simulator a reference to simulator
 	 */
 	Event(long time, Simulator simulator) {
-		this.id = maxId++;
+		this.id = simulator.nextEventId++;
 		this.time = time;
 		this.simulator = simulator;
 	}
@@ -0,0 +1,220 @@
+package COMSETsystem;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of events backed by arrays indexed by event id. Since event ids are small consecutive
+ * numbers, add, remove and contains take constant time and allocate nothing, unlike a TreeSet
+ * which walks and allocates tree nodes.
+ *
+ * The arrays only cover the ids from base, below the smallest id in the set, to the largest id
+ * in the set. When an id outside them is added, they are reallocated around the ids then in the
+ * set, with as much room again for later ids. The memory thus follows the span of the ids in the
+ * set rather than the largest id ever added, e.g., the ids of the resources waiting at the same
+ * time rather than the number of resources created since the simulation started.
+ *
+ * Membership is kept in a bitmap with one bit per id, plus a summary bitmap with one bit per
+ * non-zero word of the first, so that iteration skips empty ranges of ids quickly. The events
+ * are iterated in increasing order of id, i.e., in the same order as a TreeSet ordered by id,
+ * so that scans breaking ties by the first event found give the same results.
+ *
+ * @param <E> the type of events
+ */
+public class EventIdSet<E extends Event> extends AbstractSet<E> {
+
+	// the number of ids covered by a word of summary; base is a multiple of it
+	private static final int SUMMARY_IDS = 64 * 64;
+
+	// the smallest id the arrays cover
+	private long base = 0;
+
+	// the events indexed by id - base; null if not in the set
+	private Event[] events = new Event[64];
+
+	// one bit per id - base, set if the id is in the set
+	private long[] words = new long[1];
+
+	// one bit per word of words, set if the word is non-zero
+	private long[] summary = new long[1];
+
+	// the number of events in the set
+	private int size = 0;
+
+	// the number of changes to the set, to detect modification during iteration
+	private int modCount = 0;
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Event)) {
+			return false;
+		}
+		Event event = (Event) o;
+		long index = event.id - base;
+		return index >= 0 && index < events.length && events[(int) index] == event;
+	}
+
+	@Override
+	public boolean add(E event) {
+		if (event.id < base || event.id - base >= events.length) {
+			resize(event.id);
+		}
+		int id = (int) (event.id - base);
+		if (events[id] == event) {
+			return false;
+		}
+		events[id] = event;
+		words[id >>> 6] |= 1L << id;
+		summary[id >>> 12] |= 1L << (id >>> 6);
+		size++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o)) {
+			return false;
+		}
+		removeId((int) (((Event) o).id - base));
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(events, null);
+		Arrays.fill(words, 0L);
+		Arrays.fill(summary, 0L);
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int next = nextId(0);
+			private int last = -1;
+			private int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public E next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (next < 0) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = nextId(next + 1);
+				return (E) events[last];
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				removeId(last);
+				last = -1;
+				expectedModCount = modCount;
+			}
+		};
+	}
+
+	/**
+	 * @param id an index of the arrays, i.e., an event id - base
+	 */
+	private void removeId(int id) {
+		events[id] = null;
+		int word = id >>> 6;
+		words[word] &= ~(1L << id);
+		if (words[word] == 0) {
+			summary[word >>> 6] &= ~(1L << word);
+		}
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * @param from the smallest index to consider
+	 * @return the smallest index of an id in the set not smaller than from; -1 if there is none
+	 */
+	private int nextId(int from) {
+		int word = from >>> 6;
+		if (word >= words.length) {
+			return -1;
+		}
+		long bits = words[word] & (-1L << from);
+		if (bits != 0) {
+			return (word << 6) + Long.numberOfTrailingZeros(bits);
+		}
+		// Find the next non-zero word through the summary.
+		word++;
+		int summaryWord = word >>> 6;
+		if (summaryWord >= summary.length) {
+			return -1;
+		}
+		long summaryBits = summary[summaryWord] & (-1L << word);
+		while (summaryBits == 0) {
+			if (++summaryWord >= summary.length) {
+				return -1;
+			}
+			summaryBits = summary[summaryWord];
+		}
+		word = (summaryWord << 6) + Long.numberOfTrailingZeros(summaryBits);
+		return (word << 6) + Long.numberOfTrailingZeros(words[word]);
+	}
+
+	/**
+	 * Reallocate the arrays to cover the ids in the set and the given id, with at least as many
+	 * ids again after them, so that ids increasing one at a time only resize the arrays after
+	 * as many adds as the arrays cover.
+	 *
+	 * @param id an id to add
+	 */
+	private void resize(long id) {
+		long first = id;
+		long last = id;
+		for (int i = nextId(0); i >= 0; i = nextId(i + 1)) {
+			first = Math.min(first, base + i);
+			last = Math.max(last, base + i);
+		}
+		long newBase = first - first % SUMMARY_IDS;
+		long span = last - newBase + 1;
+		int capacity = 64;
+		while (capacity < 2 * span) {
+			capacity *= 2;
+		}
+		Event[] oldEvents = events;
+		long oldBase = base;
+		events = new Event[capacity];
+		words = new long[(capacity + 63) >>> 6];
+		summary = new long[(words.length + 63) >>> 6];
+		base = newBase;
+		for (int i = 0; i < oldEvents.length; i++) {
+			if (oldEvents[i] != null) {
+				int index = (int) (oldBase + i - newBase);
+				events[index] = oldEvents[i];
+				words[index >>> 6] |= 1L << index;
+				summary[index >>> 12] |= 1L << (index >>> 6);
+			}
+		}
+	}
+}
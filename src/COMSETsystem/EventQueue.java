@@ -0,0 +1,189 @@
+package COMSETsystem;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An EventScheduler implemented as a binary min-heap of events ordered by time, ties broken
+ * by id (see Event.compareTo). Every event keeps its position in the heap, so that an event can
+ * be removed in O(log n) when an assignment cancels it, rather than by the linear search of
+ * PriorityQueue.remove. Since no two events compare equal, events are polled in exactly the same
+ * order as from a PriorityQueue.
+ *
+ * An event can be in at most one EventQueue at a time.
+ */
+public class EventQueue extends AbstractQueue<Event> implements EventScheduler {
+
+	// the events in heap order
+	private Event[] heap;
+
+	// the number of events in the queue
+	private int size = 0;
+
+	// the number of changes to the queue, to detect modification during iteration
+	private int modCount = 0;
+
+	/**
+	 * Constructor of EventQueue.
+	 */
+	public EventQueue() {
+		this(1024);
+	}
+
+	/**
+	 * Constructor of EventQueue.
+	 *
+	 * @param initialCapacity the number of events the queue can hold before it grows
+	 */
+	public EventQueue(int initialCapacity) {
+		heap = new Event[Math.max(initialCapacity, 1)];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean offer(Event event) {
+		if (event.heapIndex >= 0) {
+			throw new IllegalStateException("event " + event.id + " is already in an event queue");
+		}
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, heap.length * 2);
+		}
+		size++;
+		modCount++;
+		siftUp(size - 1, event);
+		return true;
+	}
+
+	@Override
+	public Event peek() {
+		return size == 0 ? null : heap[0];
+	}
+
+	@Override
+	public Event poll() {
+		if (size == 0) {
+			return null;
+		}
+		Event top = heap[0];
+		removeAt(0);
+		return top;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Event)) {
+			return false;
+		}
+		int i = ((Event) o).heapIndex;
+		return i >= 0 && i < size && heap[i] == o;
+	}
+
+	/**
+	 * Remove an event in O(log n).
+	 *
+	 * @param o the event to remove
+	 * @return true if the event was in the queue
+	 */
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o)) {
+			return false;
+		}
+		removeAt(((Event) o).heapIndex);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			heap[i].heapIndex = -1;
+			heap[i] = null;
+		}
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Iterates over the events in no particular order.
+	 */
+	@Override
+	public Iterator<Event> iterator() {
+		return new Iterator<Event>() {
+			private int next = 0;
+			private int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Event next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return heap[next++];
+			}
+		};
+	}
+
+	private void removeAt(int i) {
+		Event removed = heap[i];
+		removed.heapIndex = -1;
+		size--;
+		modCount++;
+		Event last = heap[size];
+		heap[size] = null;
+		if (i < size) {
+			siftDown(i, last);
+			if (heap[i] == last) {
+				siftUp(i, last);
+			}
+		}
+	}
+
+	private void siftUp(int i, Event event) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			Event parentEvent = heap[parent];
+			if (event.compareTo(parentEvent) >= 0) {
+				break;
+			}
+			heap[i] = parentEvent;
+			parentEvent.heapIndex = i;
+			i = parent;
+		}
+		heap[i] = event;
+		event.heapIndex = i;
+	}
+
+	private void siftDown(int i, Event event) {
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if (right < size && heap[right].compareTo(heap[child]) < 0) {
+				child = right;
+			}
+			Event childEvent = heap[child];
+			if (event.compareTo(childEvent) <= 0) {
+				break;
+			}
+			heap[i] = childEvent;
+			childEvent.heapIndex = i;
+			i = child;
+		}
+		heap[i] = event;
+		event.heapIndex = i;
+	}
+}
@@ -0,0 +1,18 @@
+package COMSETsystem;
+
+import java.util.Queue;
+
+/**
+ * The EventScheduler is the queue of pending events of the simulation. Events are polled in
+ * increasing order of time, ties broken by id (see Event.compareTo). Besides the usual queue
+ * operations, an implementation must support removing any pending event efficiently through
+ * remove(Object), since every assignment cancels a pending event.
+ *
+ * An event can be in at most one scheduler at a time, and the time of an event must not be
+ * changed while the event is in a scheduler.
+ *
+ * See EventQueue for a binary heap, and CalendarEventQueue for a bucket queue with one bucket
+ * per second.
+ */
+public interface EventScheduler extends Queue<Event> {
+}
@@ -0,0 +1,265 @@
+package COMSETsystem;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The EventTrace records what happens when agent and resource events are triggered. Records go
+ * to the java.util.logging loggers of AgentEvent and ResourceEvent when logging is on
+ * (comset.logging), and to a binary trace file when one is given (comset.trace_file).
+ *
+ * Call sites test the enabled field before calling a record method, and the record methods take
+ * primitives and existing objects only. A run with logging off and no trace file therefore does
+ * no string or lat/lon work per event.
+ *
+ * The trace file is big-endian. It starts with the int MAGIC and the int VERSION, followed by
+ * one record per call. Every record starts with a byte giving its type and the long time of the
+ * event, followed by:
+ *
+ * AGENT_TRIGGERED:    long agent id, byte cause, long road id, long travel time from start intersection
+ * AGENT_MOVED:        long agent id, long intersection id, long next trigger time
+ * AGENT_ASSIGNED:     long agent id, long resource id, long approach time, long trip time,
+ *                     long cruise time, long wait time, long next trigger time
+ * RESOURCE_TRIGGERED: long resource id, byte cause, long pickup road id, long pickup travel time
+ *                     from start intersection, long dropoff road id, long dropoff travel time
+ *                     from start intersection
+ * RESOURCE_WAITING:   long resource id, long expiration time
+ * RESOURCE_EXPIRED:   long resource id
+ */
+public class EventTrace {
+
+	// "CMTR", the first four bytes of a trace file
+	public static final int MAGIC = 0x434D5452;
+	public static final int VERSION = 1;
+
+	// record types
+	public static final byte AGENT_TRIGGERED = 1;
+	public static final byte AGENT_MOVED = 2;
+	public static final byte AGENT_ASSIGNED = 3;
+	public static final byte RESOURCE_TRIGGERED = 4;
+	public static final byte RESOURCE_WAITING = 5;
+	public static final byte RESOURCE_EXPIRED = 6;
+
+	// Whether any record method does something; call sites must check it first.
+	public final boolean enabled;
+
+	// Whether records are logged as text
+	private final boolean logging;
+
+	// The trace file; null if there is none
+	private DataOutputStream out;
+
+	private final Logger agentLogger = Logger.getLogger(AgentEvent.class.getName());
+	private final Logger resourceLogger = Logger.getLogger(ResourceEvent.class.getName());
+
+	/**
+	 * Constructor of a disabled EventTrace, which records nothing.
+	 */
+	public EventTrace() {
+		logging = false;
+		out = null;
+		enabled = false;
+	}
+
+	/**
+	 * Constructor of EventTrace.
+	 *
+	 * @param logging true to log records as text
+	 * @param traceFile path of the binary trace file to create; null for no trace file
+	 * @throws IOException if the trace file cannot be created
+	 */
+	public EventTrace(boolean logging, String traceFile) throws IOException {
+		this.logging = logging;
+		if (traceFile != null) {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(traceFile), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+		}
+		enabled = logging || out != null;
+	}
+
+	/**
+	 * An agent event is triggered.
+	 */
+	void agentTriggered(long agentId, long time, int cause, LocationOnRoad loc) {
+		if (logging) {
+			log(agentLogger, "******** AgentEvent id = " + agentId + " triggered at time " + time);
+			log(agentLogger, "Loc = " + loc);
+			if (cause == AgentEvent.DROPPING_OFF) {
+				log(agentLogger, "Dropoff at " + loc);
+			}
+		}
+		if (out != null) {
+			try {
+				out.writeByte(AGENT_TRIGGERED);
+				out.writeLong(time);
+				out.writeLong(agentId);
+				out.writeByte(cause);
+				out.writeLong(loc.road.id);
+				out.writeLong(loc.travelTimeFromStartIntersection);
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	/**
+	 * An agent moves onto the road to the next intersection of its search route.
+	 */
+	void agentMoved(long agentId, long time, Intersection nextIntersection, long nextTriggerTime) {
+		if (logging) {
+			log(agentLogger, "Move to " + nextIntersection);
+			log(agentLogger, "Next trigger time = " + nextTriggerTime);
+		}
+		if (out != null) {
+			try {
+				out.writeByte(AGENT_MOVED);
+				out.writeLong(time);
+				out.writeLong(agentId);
+				out.writeLong(nextIntersection.id);
+				out.writeLong(nextTriggerTime);
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	/**
+	 * An agent is assigned to a resource, either when the agent drops off a resource
+	 * (byResource false) or when the resource becomes available (byResource true).
+	 */
+	void agentAssigned(long agentId, long resourceId, long time, boolean byResource, LocationOnRoad agentLoc,
+			LocationOnRoad pickupLoc, LocationOnRoad dropoffLoc, long approachTime, long tripTime,
+			long cruiseTime, long waitTime, long nextTriggerTime) {
+		if (logging) {
+			Logger logger;
+			if (byResource) {
+				logger = resourceLogger;
+				log(logger, "Assigned to agent id = " + agentId + " currently at " + agentLoc);
+			} else {
+				logger = agentLogger;
+				log(logger, "Assigned to resource id = " + resourceId + " with pickupLoc at " + pickupLoc + " and dropoffLoc at " + dropoffLoc);
+			}
+			log(logger, "From agent to resource = " + approachTime + " seconds.");
+			log(logger, "From pickupLoc to dropoffLoc = " + tripTime + " seconds.");
+			log(logger, "cruise time = " + cruiseTime + " seconds.");
+			log(logger, "approach time = " + approachTime + " seconds.");
+			log(logger, "search time = " + (cruiseTime + approachTime) + " seconds.");
+			log(logger, "wait time = " + waitTime + " seconds.");
+			log(logger, (byResource ? "Next agent trigger time = " : "Next trigger time = ") + nextTriggerTime);
+		}
+		if (out != null) {
+			try {
+				out.writeByte(AGENT_ASSIGNED);
+				out.writeLong(time);
+				out.writeLong(agentId);
+				out.writeLong(resourceId);
+				out.writeLong(approachTime);
+				out.writeLong(tripTime);
+				out.writeLong(cruiseTime);
+				out.writeLong(waitTime);
+				out.writeLong(nextTriggerTime);
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	/**
+	 * A resource event is triggered.
+	 */
+	void resourceTriggered(long resourceId, long time, int cause, LocationOnRoad pickupLoc, LocationOnRoad dropoffLoc) {
+		if (logging) {
+			log(resourceLogger, "******** ResourceEvent id = " + resourceId + " triggered at time " + time);
+			log(resourceLogger, "Loc = " + pickupLoc + "," + dropoffLoc);
+		}
+		if (out != null) {
+			try {
+				out.writeByte(RESOURCE_TRIGGERED);
+				out.writeLong(time);
+				out.writeLong(resourceId);
+				out.writeByte(cause);
+				out.writeLong(pickupLoc.road.id);
+				out.writeLong(pickupLoc.travelTimeFromStartIntersection);
+				out.writeLong(dropoffLoc.road.id);
+				out.writeLong(dropoffLoc.travelTimeFromStartIntersection);
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	/**
+	 * No agent can reach a new resource in time, so the resource waits until it expires.
+	 */
+	void resourceWaiting(long resourceId, long time, long expirationTime) {
+		if (logging) {
+			log(resourceLogger, "Setup expiration event at time " + expirationTime);
+		}
+		if (out != null) {
+			try {
+				out.writeByte(RESOURCE_WAITING);
+				out.writeLong(time);
+				out.writeLong(resourceId);
+				out.writeLong(expirationTime);
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	/**
+	 * A resource expires.
+	 */
+	void resourceExpired(long resourceId, long time) {
+		if (logging) {
+			log(resourceLogger, "Expired.");
+		}
+		if (out != null) {
+			try {
+				out.writeByte(RESOURCE_EXPIRED);
+				out.writeLong(time);
+				out.writeLong(resourceId);
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	/**
+	 * Log a message as if it came from the class the logger is named after.
+	 */
+	private static void log(Logger logger, String message) {
+		logger.logp(Level.INFO, logger.getName(), null, message);
+	}
+
+	/**
+	 * Flush and close the trace file, if any.
+	 */
+	public void close() {
+		if (out != null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			out = null;
+		}
+	}
+
+	/**
+	 * Stop writing the trace file after a write error rather than failing the simulation.
+	 */
+	private void fail(IOException e) {
+		e.printStackTrace();
+		try {
+			out.close();
+		} catch (IOException ignored) {
+		}
+		out = null;
+	}
+}
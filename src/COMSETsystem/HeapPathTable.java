@@ -0,0 +1,139 @@
+package COMSETsystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A PathTable held in two flat arrays in the Java heap. The table is either filled by
+ * CityMap.calcTravelTimes or copied from a cache file written by write().
+ */
+class HeapPathTable extends PathTable {
+
+	// The number of table entries copied at a time when reading or writing a file.
+	private static final int CHUNK = 1 << 20;
+
+	// Travel times, row-major by source intersection
+	private final int[] travelTimes;
+
+	// Predecessors, row-major by source intersection
+	private final char[] predecessors;
+
+	/**
+	 * Constructor of HeapPathTable. Every pair is initially unreachable.
+	 *
+	 * @param size the number of intersections
+	 */
+	HeapPathTable(int size) {
+		super(size);
+		travelTimes = new int[size * size];
+		Arrays.fill(travelTimes, UNREACHABLE);
+		predecessors = new char[size * size];
+	}
+
+	/**
+	 * Constructor of HeapPathTable from a file written by write(). The file is memory-mapped
+	 * piece by piece and copied into the arrays of the table.
+	 *
+	 * @param size the number of intersections
+	 * @param channel a channel of the file
+	 * @param offset the position of the table in the file
+	 * @throws IOException if the file cannot be read
+	 */
+	HeapPathTable(int size, FileChannel channel, long offset) throws IOException {
+		super(size);
+		int pairs = size * size;
+		travelTimes = new int[pairs];
+		for (int from = 0; from < pairs; from += CHUNK) {
+			int length = Math.min(CHUNK, pairs - from);
+			map(channel, offset + (long) from * Integer.BYTES, length * Integer.BYTES).asIntBuffer().get(travelTimes, from, length);
+		}
+		offset += (long) pairs * Integer.BYTES;
+		predecessors = new char[pairs];
+		for (int from = 0; from < pairs; from += CHUNK) {
+			int length = Math.min(CHUNK, pairs - from);
+			map(channel, offset + (long) from * Character.BYTES, length * Character.BYTES).asCharBuffer().get(predecessors, from, length);
+		}
+	}
+
+	private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @param source pathTableIndex of the source intersection
+	 * @param destination pathTableIndex of the destination intersection
+	 * @return the shortest travel time in seconds from source to destination
+	 */
+	@Override
+	long travelTime(int source, int destination) {
+		return travelTimes[source * size + destination];
+	}
+
+	/**
+	 * @param source pathTableIndex of the source intersection
+	 * @param destination pathTableIndex of the destination intersection
+	 * @return pathTableIndex of the intersection preceding destination on the shortest path
+	 */
+	@Override
+	int predecessor(int source, int destination) {
+		return predecessors[source * size + destination];
+	}
+
+	/**
+	 * Set the entry of a pair of intersections.
+	 *
+	 * @param source pathTableIndex of the source intersection
+	 * @param destination pathTableIndex of the destination intersection
+	 * @param travelTime the shortest travel time in seconds from source to destination
+	 * @param predecessor pathTableIndex of the intersection preceding destination on the shortest path
+	 */
+	void set(int source, int destination, long travelTime, int predecessor) {
+		if (travelTime >= UNREACHABLE) {
+			throw new IllegalArgumentException("travel time too large for the path table: " + travelTime);
+		}
+		int i = source * size + destination;
+		travelTimes[i] = (int) travelTime;
+		predecessors[i] = (char) predecessor;
+	}
+
+	/**
+	 * Write the table to a channel in little-endian byte order: the travel times of all the pairs
+	 * followed by the predecessors of all the pairs, both row-major. This is the layout read by
+	 * the constructor HeapPathTable(int, FileChannel, long) and by MappedPathTable.
+	 *
+	 * @param channel the channel to write to
+	 * @throws IOException if the channel cannot be written
+	 */
+	void write(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		for (int from = 0; from < travelTimes.length; from += CHUNK) {
+			int length = Math.min(CHUNK, travelTimes.length - from);
+			buffer.clear();
+			buffer.asIntBuffer().put(travelTimes, from, length);
+			buffer.limit(length * Integer.BYTES);
+			writeFully(channel, buffer);
+		}
+		int pairs = size * size;
+		for (int from = 0; from < pairs; from += CHUNK) {
+			int length = Math.min(CHUNK, pairs - from);
+			buffer.clear();
+			buffer.asCharBuffer().put(predecessors, from, length);
+			buffer.limit(length * Character.BYTES);
+			writeFully(channel, buffer);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	@Override
+	String storage() {
+		return "in the Java heap";
+	}
+}
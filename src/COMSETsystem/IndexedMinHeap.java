@@ -0,0 +1,171 @@
+package COMSETsystem;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int ids in the range [0, capacity) keyed by long values. The position
+ * of every id in the heap is tracked so that contains is O(1) and decreaseKey is O(log n),
+ * which PriorityQueue cannot do without an O(n) remove.
+ *
+ * Ties on the key are broken by the smaller id. Since the intersections of a map are given
+ * their pathTableIndex in increasing order of intersection id, a heap over pathTableIndex values
+ * polls intersections in the same order as a queue ordered by (cost, intersection id).
+ */
+class IndexedMinHeap {
+
+	// the ids in heap order
+	private final int[] heap;
+
+	// the position of every id in heap; -1 if the id is not in the heap
+	private final int[] position;
+
+	// the key of every id
+	private final long[] keys;
+
+	// the number of ids in the heap
+	private int size;
+
+	/**
+	 * Constructor of IndexedMinHeap.
+	 *
+	 * @param capacity the number of distinct ids, i.e., ids range from 0 to capacity - 1
+	 */
+	IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		position = new int[capacity];
+		keys = new long[capacity];
+		Arrays.fill(position, -1);
+		size = 0;
+	}
+
+	/**
+	 * @return the number of ids in the heap
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the heap is empty
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param id an id
+	 * @return true if the id is in the heap
+	 */
+	boolean contains(int id) {
+		return position[id] >= 0;
+	}
+
+	/**
+	 * @param id an id in the heap
+	 * @return the key of the id
+	 */
+	long key(int id) {
+		return keys[id];
+	}
+
+	/**
+	 * Add an id that is not in the heap.
+	 *
+	 * @param id the id to add
+	 * @param key the key of the id
+	 */
+	void insert(int id, long key) {
+		keys[id] = key;
+		heap[size] = id;
+		position[id] = size;
+		size++;
+		siftUp(size - 1);
+	}
+
+	/**
+	 * Lower the key of an id in the heap.
+	 *
+	 * @param id the id
+	 * @param key the new key, not larger than the current key
+	 */
+	void decreaseKey(int id, long key) {
+		keys[id] = key;
+		siftUp(position[id]);
+	}
+
+	/**
+	 * @return the id with the smallest key
+	 */
+	int peek() {
+		return heap[0];
+	}
+
+	/**
+	 * Remove the id with the smallest key.
+	 *
+	 * @return the removed id
+	 */
+	int poll() {
+		int top = heap[0];
+		size--;
+		position[top] = -1;
+		if (size > 0) {
+			int last = heap[size];
+			heap[0] = last;
+			position[last] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	/**
+	 * Remove all the ids. Takes time proportional to the current size rather than the capacity.
+	 */
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			position[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	private boolean less(int a, int b) {
+		return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+	}
+
+	private void siftUp(int i) {
+		int id = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			int parentId = heap[parent];
+			if (!less(id, parentId)) {
+				break;
+			}
+			heap[i] = parentId;
+			position[parentId] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+
+	private void siftDown(int i) {
+		int id = heap[i];
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if (right < size && less(heap[right], heap[child])) {
+				child = right;
+			}
+			int childId = heap[child];
+			if (!less(childId, id)) {
+				break;
+			}
+			heap[i] = childId;
+			position[childId] = i;
+			i = child;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+}
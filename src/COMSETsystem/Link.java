@@ -45,7 +45,22 @@ public class Link implements Comparable<Link> {
 	 * @param speed The speed limit on the link
 	 */
 	public Link (Vertex from, Vertex to, double length, double speed) {
-		this.id = maxId++;
+		this(maxId++, from, to, length, speed);
+	}
+
+	/**
+	 * Constructor for Link with a given id, e.g., to restore a map from a snapshot. Later
+	 * links get larger ids.
+	 *
+	 * @param id the id of the link
+	 * @param from The start vertex
+	 * @param to The end vertex
+	 * @param length the length of the link
+	 * @param speed The speed limit on the link
+	 */
+	public Link (long id, Vertex from, Vertex to, double length, double speed) {
+		this.id = id;
+		maxId = Math.max(maxId, id + 1);
 		this.from = from;
 		this.to = to;
 		this.length = length;
@@ -119,13 +134,21 @@ public class Link implements Comparable<Link> {
 	 * @return distance square
 	 */
 	public double distanceSq(Point2D p) {
+		return distanceSq(p.getX(), p.getY());
+	}
+
+	/**
+	 * squared distance from point (x, y) to the link
+	 * @param x x-coordinate of the point
+	 * @param y y-coordinate of the point
+	 * @return squared distance from the point to the link
+	 */
+	public double distanceSq(double x, double y) {
 		double distSq;
 		double x1 = this.from.getX();
 		double y1 = this.from.getY();
 		double x2 = this.to.getX();
 		double y2 = this.to.getY();
-		double x = p.getX();
-		double y = p.getY();
 		double length = (x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2);
 
 		if (length == 0.0) {
@@ -156,4 +179,35 @@ public class Link implements Comparable<Link> {
 	public double distanceSq(double x1, double y1, double x2, double y2) {
 		return (x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2);
 	}
+
+	/**
+	 * Snaps point (x, y) to the closest point on the link, like MapWithData.snap, and computes the
+	 * travel time from the start intersection of the road of the link to that point. Nothing is
+	 * allocated, so that map matching millions of points creates no garbage.
+	 * @param x x-coordinate of the point
+	 * @param y y-coordinate of the point
+	 * @return travel time from the start intersection of the road to the snapped point
+	 */
+	public long travelTimeFromStartIntersection(double x, double y) {
+		double x1 = this.from.getX();
+		double y1 = this.from.getY();
+		double x2 = this.to.getX();
+		double y2 = this.to.getY();
+		double snapX = x1;
+		double snapY = y1;
+		double lengthSq = (x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2);
+		if (lengthSq != 0.0) {
+			double t = ((x - x1) * (x2 - x1) + (y - y1) * (y2 - y1)) / lengthSq;
+			if (t > 1.0) {
+				snapX = x2;
+				snapY = y2;
+			} else if (t >= 0.0) {
+				snapX = x1 + t * (x2 - x1);
+				snapY = y1 + t * (y2 - y1);
+			}
+		}
+		double distanceFromStartVertex = Math.sqrt(distanceSq(snapX, snapY, x1, y1));
+		long travelTimeFromStartVertex = Math.round(distanceFromStartVertex / length * travelTime);
+		return beginTime + travelTimeFromStartVertex;
+	}
 }
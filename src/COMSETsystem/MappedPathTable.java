@@ -0,0 +1,76 @@
+package COMSETsystem;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A PathTable read directly from a cache file written by HeapPathTable.write. The file is
+ * memory-mapped read-only, so the table does not take any Java heap, and simulators running
+ * side by side in different JVMs on the same cache file share a single copy of it through the
+ * page cache of the operating system.
+ *
+ * A single mapping cannot exceed 2 GB, so the table is mapped in segments of whole rows.
+ */
+class MappedPathTable extends PathTable {
+
+	// The maximum number of bytes of a segment
+	private static final long SEGMENT_BYTES = 1L << 30;
+
+	// The number of rows (source intersections) per segment
+	private final int rowsPerSegment;
+
+	// Travel times, one buffer per segment
+	private final IntBuffer[] travelTimes;
+
+	// Predecessors, one buffer per segment
+	private final CharBuffer[] predecessors;
+
+	/**
+	 * Constructor of MappedPathTable.
+	 *
+	 * @param size the number of intersections
+	 * @param channel a channel of the cache file; may be closed once the table is constructed
+	 * @param offset the position of the table in the file
+	 * @throws IOException if the file cannot be mapped
+	 */
+	MappedPathTable(int size, FileChannel channel, long offset) throws IOException {
+		super(size);
+		rowsPerSegment = (int) Math.max(1, SEGMENT_BYTES / ((long) size * Integer.BYTES));
+		int segments = (size + rowsPerSegment - 1) / rowsPerSegment;
+		long predecessorOffset = offset + (long) size * size * Integer.BYTES;
+
+		travelTimes = new IntBuffer[segments];
+		predecessors = new CharBuffer[segments];
+		for (int segment = 0; segment < segments; segment++) {
+			long firstRow = (long) segment * rowsPerSegment;
+			long rows = Math.min(rowsPerSegment, size - firstRow);
+			travelTimes[segment] = channel.map(FileChannel.MapMode.READ_ONLY,
+					offset + firstRow * size * Integer.BYTES, rows * size * Integer.BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			predecessors[segment] = channel.map(FileChannel.MapMode.READ_ONLY,
+					predecessorOffset + firstRow * size * Character.BYTES, rows * size * Character.BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN).asCharBuffer();
+		}
+	}
+
+	@Override
+	long travelTime(int source, int destination) {
+		int segment = source / rowsPerSegment;
+		return travelTimes[segment].get((source - segment * rowsPerSegment) * size + destination);
+	}
+
+	@Override
+	int predecessor(int source, int destination) {
+		int segment = source / rowsPerSegment;
+		int i = (source - segment * rowsPerSegment) * size + destination;
+		return predecessors[segment].get(i);
+	}
+
+	@Override
+	String storage() {
+		return "memory-mapped outside the Java heap";
+	}
+}
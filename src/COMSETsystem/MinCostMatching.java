@@ -0,0 +1,162 @@
+package COMSETsystem;
+
+import java.util.Arrays;
+
+/**
+ * A minimum-cost maximum matching on a sparse bipartite graph of resources and agents, solved by
+ * successive shortest paths. The graph is seen as a flow network: a source connected to every
+ * resource, the candidate edges from resources to agents, and every agent connected to a sink,
+ * all with capacity one. Each iteration sends one unit of flow along the cheapest augmenting path,
+ * found by Dijkstra on reduced costs, so that the matching of every size is the cheapest of that
+ * size. Iterations stop when no augmenting path is left, which gives the largest matching possible,
+ * and the cheapest among the largest.
+ *
+ * Edge costs must not be negative. Ties are broken deterministically by the order in which the
+ * edges are added and by node number.
+ */
+class MinCostMatching {
+
+	// the number of resources and agents
+	private final int resources;
+	private final int agents;
+
+	// node numbers: the source, then the resources, then the agents, then the sink
+	private final int source;
+	private final int sink;
+	private final int nodes;
+
+	// edges in adjacency lists; edge e and edge e ^ 1 are the two directions of a network edge
+	private int[] head;
+	private int[] next;
+	private int[] to;
+	private int[] capacity;
+	private long[] cost;
+	private int edges = 0;
+
+	// whether the edges to the source and the sink have been added
+	private boolean closed = false;
+
+	/**
+	 * Constructor of MinCostMatching.
+	 *
+	 * @param resources the number of resources, numbered from 0
+	 * @param agents the number of agents, numbered from 0
+	 */
+	MinCostMatching(int resources, int agents) {
+		this.resources = resources;
+		this.agents = agents;
+		source = 0;
+		sink = resources + agents + 1;
+		nodes = resources + agents + 2;
+		head = new int[nodes];
+		Arrays.fill(head, -1);
+		int initialEdges = 2 * (resources + agents) + 16;
+		next = new int[initialEdges];
+		to = new int[initialEdges];
+		capacity = new int[initialEdges];
+		cost = new long[initialEdges];
+	}
+
+	/**
+	 * Make an agent a candidate for a resource.
+	 *
+	 * @param resource the resource
+	 * @param agent the agent
+	 * @param edgeCost the cost of assigning the agent to the resource, not negative
+	 */
+	void addCandidate(int resource, int agent, long edgeCost) {
+		addEdge(1 + resource, 1 + resources + agent, edgeCost);
+	}
+
+	/**
+	 * Solve the matching.
+	 *
+	 * @return the agent matched to every resource; -1 for a resource left unmatched
+	 */
+	int[] solve() {
+		if (!closed) {
+			for (int r = 0; r < resources; r++) {
+				addEdge(source, 1 + r, 0);
+			}
+			for (int a = 0; a < agents; a++) {
+				addEdge(1 + resources + a, sink, 0);
+			}
+			closed = true;
+		}
+
+		long[] potential = new long[nodes];
+		long[] distance = new long[nodes];
+		int[] parentEdge = new int[nodes];
+		IndexedMinHeap queue = new IndexedMinHeap(nodes);
+		while (true) {
+			// Dijkstra on reduced costs, which are not negative thanks to the potentials
+			Arrays.fill(distance, Long.MAX_VALUE);
+			Arrays.fill(parentEdge, -1);
+			distance[source] = 0;
+			queue.insert(source, 0);
+			while (!queue.isEmpty()) {
+				int u = queue.poll();
+				for (int e = head[u]; e >= 0; e = next[e]) {
+					if (capacity[e] == 0) {
+						continue;
+					}
+					int v = to[e];
+					long d = distance[u] + cost[e] + potential[u] - potential[v];
+					if (d < distance[v]) {
+						distance[v] = d;
+						parentEdge[v] = e;
+						if (queue.contains(v)) {
+							queue.decreaseKey(v, d);
+						} else {
+							queue.insert(v, d);
+						}
+					}
+				}
+			}
+			if (distance[sink] == Long.MAX_VALUE) {
+				break;
+			}
+			// Capping at the distance of the sink keeps the reduced costs of all the edges
+			// with capacity left non-negative.
+			for (int v = 0; v < nodes; v++) {
+				potential[v] += Math.min(distance[v], distance[sink]);
+			}
+			for (int v = sink; v != source; v = to[parentEdge[v] ^ 1]) {
+				capacity[parentEdge[v]]--;
+				capacity[parentEdge[v] ^ 1]++;
+			}
+		}
+
+		int[] match = new int[resources];
+		Arrays.fill(match, -1);
+		for (int r = 0; r < resources; r++) {
+			for (int e = head[1 + r]; e >= 0; e = next[e]) {
+				int v = to[e];
+				if (v > resources && v < sink && (e & 1) == 0 && capacity[e] == 0) {
+					match[r] = v - resources - 1;
+				}
+			}
+		}
+		return match;
+	}
+
+	private void addEdge(int from, int target, long edgeCost) {
+		if (edges + 2 > to.length) {
+			int length = to.length * 2;
+			next = Arrays.copyOf(next, length);
+			to = Arrays.copyOf(to, length);
+			capacity = Arrays.copyOf(capacity, length);
+			cost = Arrays.copyOf(cost, length);
+		}
+		to[edges] = target;
+		capacity[edges] = 1;
+		cost[edges] = edgeCost;
+		next[edges] = head[from];
+		head[from] = edges++;
+		to[edges] = from;
+		capacity[edges] = 0;
+		cost[edges] = -edgeCost;
+		next[edges] = head[target];
+		head[target] = edges++;
+	}
+}
@@ -0,0 +1,155 @@
+package COMSETsystem;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelAgentMoves triggers in parallel the agent events that happen at the same time when the
+ * agents reach intersections (see Simulator.setSimulationThreads).
+ *
+ * When an agent reaches an intersection, the AgentEvent asks the agent for the next intersection
+ * and moves the agent onto the road to it. Asking the agent only involves the agent and reads the
+ * map, and moving the agent does not change anything that another agent reaching an intersection
+ * at the same time looks at. The run of such events at the head of the event queue is therefore
+ * taken out of the queue at once, the agents choose their next intersections concurrently, and the
+ * moves are then made one by one in the order of the queue. Every other event, in particular every
+ * event in which agents and resources interact, is still triggered alone, so that the simulation
+ * gives exactly the same results as when the events are triggered one by one.
+ *
+ * An agent that reaches an intersection with a road of travel time zero out of it may reach the
+ * next intersection at the same time, and the event would then have to be triggered again before
+ * the rest of the run. Such agents end the run.
+ */
+class ParallelAgentMoves {
+
+	// The number of agents that choose their next intersections in one task.
+	static final int CHUNK = 16;
+
+	private final Simulator simulator;
+
+	private final ForkJoinPool pool;
+
+	// Whether an intersection has a road of travel time zero out of it, by path table index.
+	private final boolean[] instantExit;
+
+	// The events of the current run, the intersections chosen by their agents and the exceptions thrown.
+	private final ArrayList<AgentEvent> run = new ArrayList<>();
+	private Intersection[] choices = new Intersection[64];
+	private Throwable[] failures = new Throwable[64];
+
+	/**
+	 * Constructor of ParallelAgentMoves.
+	 *
+	 * @param simulator the simulator whose events are triggered
+	 * @param threads the number of threads the agents choose their next intersections in
+	 */
+	ParallelAgentMoves(Simulator simulator, int threads) {
+		this.simulator = simulator;
+		pool = new ForkJoinPool(threads);
+		instantExit = new boolean[simulator.map.intersections().size()];
+		for (Intersection intersection : simulator.map.intersections().values()) {
+			for (Road road : intersection.getRoadsFrom()) {
+				if (road.travelTime == 0) {
+					instantExit[intersection.pathTableIndex] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if an event may be triggered in a run of agents reaching intersections at the given time
+	 */
+	boolean canJoin(Event event, long time) {
+		if (!(event instanceof AgentEvent) || event.time != time) {
+			return false;
+		}
+		AgentEvent agentEvent = (AgentEvent) event;
+		return agentEvent.eventCause == AgentEvent.INTERSECTION_REACHED && !instantExit[agentEvent.loc.road.to.pathTableIndex];
+	}
+
+	/**
+	 * Trigger an event just taken out of the event queue together with the events that follow it in
+	 * the queue and can join it, and put them back on the queue.
+	 *
+	 * @param first an event taken out of the event queue for which canJoin is true
+	 * @param progress the progress reporter to count the triggered events
+	 * @throws Exception if an agent does not move to an adjacent intersection
+	 */
+	void trigger(AgentEvent first, ProgressReporter progress) throws Exception {
+		EventScheduler events = simulator.events;
+		run.clear();
+		run.add(first);
+		Event next;
+		while ((next = events.peek()) != null && canJoin(next, first.time)) {
+			events.poll();
+			progress.eventTriggered(next.time, events.size());
+			run.add((AgentEvent) next);
+		}
+
+		if (run.size() == 1) {
+			events.add(first.trigger());
+			return;
+		}
+
+		if (choices.length < run.size()) {
+			choices = new Intersection[Math.max(run.size(), 2 * choices.length)];
+			failures = new Throwable[choices.length];
+		}
+		pool.invoke(new ChooseTask(0, run.size()));
+
+		// Move the agents in the order of the queue.
+		for (int i = 0; i < run.size(); i++) {
+			AgentEvent agentEvent = run.get(i);
+			if (simulator.trace.enabled) {
+				simulator.trace.agentTriggered(agentEvent.id, agentEvent.time, agentEvent.eventCause, agentEvent.loc);
+			}
+			Throwable failure = failures[i];
+			if (failure != null) {
+				failures[i] = null;
+				if (failure instanceof Error) {
+					throw (Error) failure;
+				}
+				throw (RuntimeException) failure;
+			}
+			events.add(agentEvent.moveTo(choices[i]));
+			choices[i] = null;
+		}
+	}
+
+	/**
+	 * Stop the threads.
+	 */
+	void shutdown() {
+		pool.shutdown();
+	}
+
+	private class ChooseTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		ChooseTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= CHUNK) {
+				for (int i = from; i < to; i++) {
+					try {
+						choices[i] = run.get(i).chooseNextIntersection();
+					} catch (RuntimeException | Error e) {
+						failures[i] = e;
+					}
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new ChooseTask(from, middle), new ChooseTask(middle, to));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package COMSETsystem;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the empty agent that reaches a resource the earliest by checking all the empty agents in
+ * parallel, as ResourceEvent.becomeAvailableHandler does serially. The agents are split into
+ * chunks of CHUNK agents that are checked in the common fork-join pool, and the results of two
+ * halves are combined preferring the first half on a tie. The result is therefore the same as the
+ * serial scan: the agent with the earliest arrival, ties broken by the order of the agents, i.e.,
+ * by the smaller id.
+ *
+ * Checking an agent only reads the map and the agent, so the chunks do not interfere.
+ */
+class ParallelAgentScan {
+
+	// The number of agents checked serially by one task.
+	static final int CHUNK = 1024;
+
+	/**
+	 * Find the empty agent that reaches a resource the earliest.
+	 *
+	 * @param resource the resource that becomes available
+	 * @param agents the empty agents in increasing order of id
+	 * @return the index in agents of the agent with the earliest arrival; -1 if agents is empty
+	 */
+	static int earliestArrival(ResourceEvent resource, AgentEvent[] agents) {
+		if (agents.length == 0) {
+			return -1;
+		}
+		return ForkJoinPool.commonPool().invoke(new ScanTask(resource, agents, 0, agents.length)).index;
+	}
+
+	private static class Result {
+		final int index;
+		final long arrival;
+
+		Result(int index, long arrival) {
+			this.index = index;
+			this.arrival = arrival;
+		}
+	}
+
+	private static class ScanTask extends RecursiveTask<Result> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ResourceEvent resource;
+		private final AgentEvent[] agents;
+		private final int from;
+		private final int to;
+
+		ScanTask(ResourceEvent resource, AgentEvent[] agents, int from, int to) {
+			this.resource = resource;
+			this.agents = agents;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Result compute() {
+			if (to - from <= CHUNK) {
+				int best = -1;
+				long earliest = Long.MAX_VALUE;
+				for (int i = from; i < to; i++) {
+					LocationOnRoad agentLocationOnRoad = resource.agentLocationOnRoad(agents[i]);
+					long arriveTime = resource.simulator.map.travelTimeBetween(agentLocationOnRoad, resource.pickupLoc) + resource.time;
+					if (arriveTime < earliest) {
+						best = i;
+						earliest = arriveTime;
+					}
+				}
+				return new Result(best, earliest);
+			}
+			int middle = (from + to) >>> 1;
+			ScanTask first = new ScanTask(resource, agents, from, middle);
+			ScanTask second = new ScanTask(resource, agents, middle, to);
+			second.fork();
+			Result firstResult = first.compute();
+			Result secondResult = second.join();
+			return secondResult.arrival < firstResult.arrival ? secondResult : firstResult;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package COMSETsystem;
+
+import java.text.NumberFormat;
+
+/**
+ * The PathTable stores the all-pair shortest travel times and the shortest path predecessors
+ * of a map, indexed by the pathTableIndex of the source and destination intersections.
+ * Rather than keeping one object per pair of intersections, the table is packed into flat
+ * row-major arrays of travel times (4 bytes per pair) and predecessors (2 bytes per pair, which
+ * holds any pathTableIndex since a table has at most MAX_SIZE intersections).
+ *
+ * See HeapPathTable for a table held in the Java heap, and MappedPathTable for a table read
+ * directly from a memory-mapped cache file.
+ */
+abstract class PathTable {
+
+	// The travel time stored for a pair of intersections that are not connected.
+	static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	// The largest number of intersections for which size * size fits in an array index. It is
+	// below 65536, so a char holds the pathTableIndex of any intersection.
+	static final int MAX_SIZE = 46340;
+
+	// The number of intersections covered by the table
+	final int size;
+
+	PathTable(int size) {
+		if (size > MAX_SIZE) {
+			throw new IllegalArgumentException("too many intersections for a path table: " + size);
+		}
+		this.size = size;
+	}
+
+	/**
+	 * @param source pathTableIndex of the source intersection
+	 * @param destination pathTableIndex of the destination intersection
+	 * @return the shortest travel time in seconds from source to destination
+	 */
+	abstract long travelTime(int source, int destination);
+
+	/**
+	 * @param source pathTableIndex of the source intersection
+	 * @param destination pathTableIndex of the destination intersection
+	 * @return pathTableIndex of the intersection preceding destination on the shortest path;
+	 *         not a valid intersection if destination is unreachable from source, i.e., if its
+	 *         travel time is UNREACHABLE
+	 */
+	abstract int predecessor(int source, int destination);
+
+	/**
+	 * @return the number of bytes of the packed table
+	 */
+	long bytes() {
+		long pairs = (long) size * size;
+		return pairs * Integer.BYTES + pairs * Character.BYTES;
+	}
+
+	/**
+	 * Estimate the number of bytes the same table takes as an
+	 * ImmutableList<ImmutableList<PathTableEntry>>, assuming compressed oops:
+	 * a 24-byte PathTableEntry (12-byte header, a long and an int) plus a 4-byte
+	 * reference per pair, and an ImmutableList with its backing array per row.
+	 *
+	 * @return the estimated number of bytes of the object-per-pair layout
+	 */
+	long objectLayoutBytes() {
+		long pairs = (long) size * size;
+		long perRow = 16 + 16 + 4L * size;
+		return pairs * (24 + 4) + size * perRow + perRow;
+	}
+
+	/**
+	 * @return where the table is held, e.g., "in the Java heap"
+	 */
+	abstract String storage();
+
+	/**
+	 * @return a human readable comparison of the packed and the object-per-pair layouts
+	 */
+	String memoryReport() {
+		NumberFormat format = NumberFormat.getInstance();
+		long packed = bytes();
+		long objects = objectLayoutBytes();
+		return "Path table for " + format.format(size) + " intersections: "
+				+ format.format(packed / 1024) + " KB packed " + storage() + " vs. an estimated "
+				+ format.format(objects / 1024) + " KB as one object per pair ("
+				+ format.format(objects / Math.max(packed, 1)) + "x smaller, "
+				+ format.format((long) size * size) + " fewer heap objects)";
+	}
+}
@@ -0,0 +1,184 @@
+package COMSETsystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import MapCreation.MapCreator;
+
+/**
+ * The PathTableCache keeps the path table of a map in a file so that the all-pair travel times
+ * do not have to be computed again when the simulator is started with the same map JSON file,
+ * bounding polygon KML file and speed reduction. The file is named after a hash of these three
+ * inputs (see MapCreator.inputHash), so a change of any of them leads to a different file.
+ *
+ * The file starts with a header of HEADER_BYTES bytes, all numbers little-endian:
+ *
+ *   int      magic number
+ *   int      format version
+ *   byte[32] hash of the inputs
+ *   int      number of intersections
+ *   long     checksum of the intersection ids in pathTableIndex order
+ *
+ * followed by the table in the layout of HeapPathTable.write.
+ */
+public class PathTableCache {
+
+	// "CMPT"
+	static final int MAGIC = 0x434D5054;
+
+	// Must be increased whenever the layout of the file changes.
+	static final int VERSION = 1;
+
+	static final int HEADER_BYTES = 64;
+
+	private static final int HASH_BYTES = 32;
+
+	// The cache file
+	private final Path file;
+
+	// The hash of the inputs the map was created from
+	private final byte[] inputHash;
+
+	/**
+	 * Constructor of PathTableCache.
+	 *
+	 * @param directory the directory holding the cache files; created if it does not exist
+	 * @param mapJSONFile the map file
+	 * @param boundingPolygonKMLFile the KML file defining the bounding polygon
+	 * @param speedReduction the speed reduction
+	 * @throws IOException if the input files cannot be read
+	 */
+	public PathTableCache(String directory, String mapJSONFile, String boundingPolygonKMLFile, double speedReduction) throws IOException {
+		inputHash = MapCreator.inputHash(mapJSONFile, boundingPolygonKMLFile, speedReduction);
+		StringBuilder name = new StringBuilder("pathtable-");
+		for (byte b : inputHash) {
+			name.append(String.format("%02x", b));
+		}
+		name.append(".bin");
+		file = Paths.get(directory, name.toString());
+	}
+
+	/**
+	 * @return the cache file
+	 */
+	public Path file() {
+		return file;
+	}
+
+	/**
+	 * Load the path table of a map from the cache file.
+	 *
+	 * @param map the map
+	 * @param memoryMapped if true, the table is read directly from the memory-mapped file
+	 *        (see MappedPathTable); otherwise it is copied into the Java heap
+	 * @return true if the path table was loaded; false if there is no valid cache file for the map
+	 */
+	public boolean load(CityMap map, boolean memoryMapped) {
+		if (!Files.isRegularFile(file)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (!checkHeader(channel, map)) {
+				System.out.println("Ignoring outdated path table cache file " + file);
+				return false;
+			}
+			int size = map.intersections().size();
+			if (memoryMapped) {
+				map.setPathTable(new MappedPathTable(size, channel, HEADER_BYTES));
+			} else {
+				map.setPathTable(new HeapPathTable(size, channel, HEADER_BYTES));
+			}
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Store the path table of a map in the cache file. The file is written under a temporary
+	 * name and then renamed, so that simulators started at the same time never see a partially
+	 * written file.
+	 *
+	 * @param map the map with a path table computed by calcTravelTimes
+	 */
+	public void store(CityMap map) {
+		if (!(map.pathTable() instanceof HeapPathTable)) {
+			throw new IllegalStateException("only a computed path table can be stored");
+		}
+		Path temporary = null;
+		try {
+			Path directory = file.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			temporary = Files.createTempFile(directory, "pathtable", ".tmp");
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.put(inputHash);
+				header.putInt(map.intersections().size());
+				header.putLong(intersectionChecksum(map));
+				header.clear();
+				while (header.hasRemaining()) {
+					channel.write(header);
+				}
+				((HeapPathTable) map.pathTable()).write(channel);
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+			if (temporary != null) {
+				try {
+					Files.deleteIfExists(temporary);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check that a cache file holds the path table of a map.
+	 */
+	private boolean checkHeader(FileChannel channel, CityMap map) throws IOException {
+		int size = map.intersections().size();
+		long pairs = (long) size * size;
+		long expectedBytes = HEADER_BYTES + pairs * Integer.BYTES + pairs * Character.BYTES;
+		if (channel.size() != expectedBytes) {
+			return false;
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining() && channel.read(header, header.position()) > 0);
+		header.flip();
+		if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+			return false;
+		}
+		byte[] hash = new byte[HASH_BYTES];
+		header.get(hash);
+		return Arrays.equals(hash, inputHash) && header.getInt() == size
+				&& header.getLong() == intersectionChecksum(map);
+	}
+
+	/**
+	 * A checksum of the intersection ids in pathTableIndex order. Guards against loading a table
+	 * whose rows and columns refer to different intersections than the ones of the map.
+	 */
+	static long intersectionChecksum(CityMap map) {
+		long[] ids = new long[map.intersections().size()];
+		for (Intersection intersection : map.intersections().values()) {
+			ids[intersection.pathTableIndex] = intersection.id;
+		}
+		long checksum = 1;
+		for (long id : ids) {
+			checksum = 31 * checksum + id;
+		}
+		return checksum;
+	}
+}
@@ -0,0 +1,92 @@
+package COMSETsystem;
+
+import me.tongfei.progressbar.ProgressBar;
+
+/**
+ * The ProgressReporter updates the progress bar of Simulator.run. Updating the bar for every
+ * event costs more than many events take to trigger, so the reporter only counts events and
+ * looks at the clock once every CHECK_EVERY events. The bar is updated when at least
+ * INTERVAL_MILLIS have passed since the last update. Besides the progress in simulation time,
+ * the bar shows the number of events triggered per second, the number of pending events and how
+ * many times faster than real time the simulation runs.
+ */
+class ProgressReporter {
+
+	// The number of events between two looks at the clock; a power of two.
+	static final int CHECK_EVERY = 1 << 12;
+
+	// The minimum wall-clock time between two updates of the progress bar.
+	static final long INTERVAL_MILLIS = 500;
+
+	private final ProgressBar pb;
+
+	// The simulation time at which the simulation begins and ends
+	private final long beginTime;
+	private final long endTime;
+
+	// The number of events triggered so far
+	private long events = 0;
+
+	// The wall-clock time, the simulation time and the number of events at the last update
+	private long lastNanos;
+	private long lastTime;
+	private long lastEvents = 0;
+
+	/**
+	 * Constructor of ProgressReporter.
+	 *
+	 * @param pb the progress bar, going from 0 to 100; null to only count the events
+	 * @param beginTime the simulation time at which the simulation begins
+	 * @param endTime the simulation time at which the simulation ends
+	 */
+	ProgressReporter(ProgressBar pb, long beginTime, long endTime) {
+		this.pb = pb;
+		this.beginTime = beginTime;
+		this.endTime = endTime;
+		lastNanos = System.nanoTime();
+		lastTime = beginTime;
+	}
+
+	/**
+	 * Count an event about to be triggered.
+	 *
+	 * @param time the time of the event
+	 * @param queueSize the number of pending events
+	 */
+	void eventTriggered(long time, int queueSize) {
+		if ((++events & (CHECK_EVERY - 1)) != 0 || pb == null) {
+			return;
+		}
+		long now = System.nanoTime();
+		long elapsedNanos = now - lastNanos;
+		if (elapsedNanos < INTERVAL_MILLIS * 1000000) {
+			return;
+		}
+		double elapsedSeconds = elapsedNanos / 1e9;
+		long eventsPerSecond = (long) ((events - lastEvents) / elapsedSeconds);
+		double speed = (time - lastTime) / elapsedSeconds;
+		pb.stepTo(percentage(time));
+		pb.setExtraMessage(String.format("%,d events/s, %,d pending, %.0fx real time", eventsPerSecond, queueSize, speed));
+		lastNanos = now;
+		lastTime = time;
+		lastEvents = events;
+	}
+
+	/**
+	 * Complete the progress bar at the end of the simulation.
+	 */
+	void finish() {
+		if (pb == null) {
+			return;
+		}
+		pb.stepTo(100);
+		pb.setExtraMessage(String.format("%,d events", events));
+	}
+
+	private long percentage(long time) {
+		if (endTime <= beginTime) {
+			return 100;
+		}
+		return Math.min(100, (time - beginTime) * 100 / (endTime - beginTime));
+	}
+}
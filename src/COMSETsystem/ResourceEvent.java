@@ -1,8 +1,5 @@
 package COMSETsystem;
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
 /**
  *
  * @author TijanaKlimovic
@@ -38,6 +35,9 @@ public class ResourceEvent extends Event {
 	// The shortest travel time from pickupLoc to dropoffLoc
 	public long tripTime;
 
+	// The position of this resource within its group in the WaitingResourceIndex; -1 if not indexed.
+	int indexSlot = -1;
+
 	/**
 	 * Constructor for class ResourceEvent.
 	 *
@@ -47,13 +47,26 @@ public class ResourceEvent extends Event {
 	 * @param simulator the simulator object.
 	 */
 	public ResourceEvent(LocationOnRoad pickupLoc, LocationOnRoad dropoffLoc, long availableTime, Simulator simulator) {
+		this(pickupLoc, dropoffLoc, availableTime, simulator.map.travelTimeBetween(pickupLoc, dropoffLoc), simulator);
+	}
+
+	/**
+	 * Constructor for class ResourceEvent with a known trip time, e.g., from a MatchedResource.
+	 *
+	 * @param availableTime time when this agent is introduced to the system.
+	 * @param pickupLoc this resource's location when it becomes available.
+	 * @param dropoffLoc this resource's destination location.
+	 * @param tripTime the shortest travel time from pickupLoc to dropoffLoc.
+	 * @param simulator the simulator object.
+	 */
+	public ResourceEvent(LocationOnRoad pickupLoc, LocationOnRoad dropoffLoc, long availableTime, long tripTime, Simulator simulator) {
 		super(availableTime, simulator);
 		this.pickupLoc = pickupLoc;
 		this.dropoffLoc = dropoffLoc;
 		this.availableTime = availableTime;
 		this.eventCause = BECOME_AVAILABLE;
 		this.expirationTime = availableTime + simulator.ResourceMaximumLifeTime;
-		this.tripTime = simulator.map.travelTimeBetween(pickupLoc, dropoffLoc);
+		this.tripTime = tripTime;
 	}
 
 	/**
@@ -65,13 +78,14 @@ public class ResourceEvent extends Event {
 	 * waitingResources such that once an agent gets available it will check if
 	 * it can get to the resource in time. Furthermore, calculate the score of
 	 * this assignment according to the scoring rules. Also remove the assigned
-	 * agent from the PriorityQueue and from activeAgents.
+	 * agent from the event queue and from activeAgents.
 	 */
 	@Override
 	Event trigger() throws Exception {
 
-		Logger.getLogger(this.getClass().getName()).log(Level.INFO, "******** ResourceEvent id = "+Long.toString(id) + " triggered at time " + time, this);
-		Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Loc = " + this.pickupLoc + "," + this.dropoffLoc, this);
+		if (simulator.trace.enabled) {
+			simulator.trace.resourceTriggered(id, time, eventCause, pickupLoc, dropoffLoc);
+		}
 		if (simulator.map == null) {
 			System.out.println("map is null in resource");
 		}
@@ -99,32 +113,44 @@ public class ResourceEvent extends Event {
 		AgentEvent bestAgent = null;
 		long earliest = Long.MAX_VALUE;
 		LocationOnRoad bestAgentLocationOnRoad = null;
-		for (AgentEvent agent : simulator.emptyAgents) {
-
-			// Calculate the travel time from the agent's current location to resource.
-			// Assumption: agent.time is the arrival time at the end intersection of agent.loc.road. 
-			// This assumption is true for empty agents. Notice that when agents are initially introduced
-			// to the system, they are empty and agent.time is not necessarily the time to arrive at the end intersection.
-			// However, all the agents are triggered once before the earliest resource (see MapWithData.createMapWithData).
-			// When that happens, agent.time is updated to the end intersection arrival time. 
-			// Thus the assumption is still true.
-			long travelTimeToEndIntersection = agent.time - time;
-			long travelTimeFromStartIntersection = agent.loc.road.travelTime - travelTimeToEndIntersection;
-			LocationOnRoad agentLocationOnRoad = new LocationOnRoad(agent.loc.road, travelTimeFromStartIntersection);
-			long travelTime = simulator.map.travelTimeBetween(agentLocationOnRoad, pickupLoc);
-			long arriveTime = travelTime + time;
-			if (arriveTime < earliest) {
-				bestAgent = agent;
-				earliest = arriveTime;
-				bestAgentLocationOnRoad = agentLocationOnRoad;
+		if (simulator.assignmentWindow > 0) {
+			// In batch mode the resource waits for the next AssignmentEvent.
+		} else if (simulator.emptyAgentIndex != null) {
+			// Only the agents that may reach the resource before it expires are checked.
+			bestAgent = simulator.emptyAgentIndex.earliestArrival(pickupLoc, time, availableTime + simulator.ResourceMaximumLifeTime);
+			if (bestAgent != null) {
+				bestAgentLocationOnRoad = agentLocationOnRoad(bestAgent);
+				earliest = simulator.map.travelTimeBetween(bestAgentLocationOnRoad, pickupLoc) + time;
+			}
+		} else if (simulator.parallelScanThreshold > 0 && simulator.emptyAgents.size() >= simulator.parallelScanThreshold) {
+			// Check the agents in parallel; the result is the same as the loop below.
+			AgentEvent[] agents = simulator.emptyAgents.toArray(new AgentEvent[simulator.emptyAgents.size()]);
+			int best = ParallelAgentScan.earliestArrival(this, agents);
+			if (best >= 0) {
+				bestAgent = agents[best];
+				bestAgentLocationOnRoad = agentLocationOnRoad(bestAgent);
+				earliest = simulator.map.travelTimeBetween(bestAgentLocationOnRoad, pickupLoc) + time;
+			}
+		} else {
+			for (AgentEvent agent : simulator.emptyAgents) {
+				LocationOnRoad agentLocationOnRoad = agentLocationOnRoad(agent);
+				long travelTime = simulator.map.travelTimeBetween(agentLocationOnRoad, pickupLoc);
+				long arriveTime = travelTime + time;
+				if (arriveTime < earliest) {
+					bestAgent = agent;
+					earliest = arriveTime;
+					bestAgentLocationOnRoad = agentLocationOnRoad;
+				}
 			}
 		}
 
 		if (earliest > availableTime + simulator.ResourceMaximumLifeTime) {
-			simulator.waitingResources.add(this);
+			simulator.addWaitingResource(this);
 			this.time += simulator.ResourceMaximumLifeTime;
 			this.eventCause = EXPIRED;
-			Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Setup expiration event at time " + this.time, this);
+			if (simulator.trace.enabled) {
+				simulator.trace.resourceWaiting(id, availableTime, this.time);
+			}
 			return this;
 		} else { // make assignment
 			// update the statistics       	
@@ -145,34 +171,47 @@ public class ResourceEvent extends Event {
 			bestAgent.assignedTo(bestAgentLocationOnRoad, time, id, pickupLoc, dropoffLoc);
 
 			// "Label" the agent as occupied.
-			simulator.emptyAgents.remove(bestAgent);
+			simulator.markAgentOccupied(bestAgent);
 
 			simulator.events.remove(bestAgent);
-			Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Assigned to agent id = " + bestAgent.id + " currently at " + bestAgent.loc, this);
+			if (simulator.trace.enabled) {
+				simulator.trace.agentAssigned(bestAgent.id, id, time, true, bestAgent.loc, pickupLoc, dropoffLoc,
+						approachTime, tripTime, cruiseTime, waitTime, earliest + tripTime);
+			}
 
 			bestAgent.setEvent(earliest + tripTime, dropoffLoc, AgentEvent.DROPPING_OFF);
 
-			Logger.getLogger(this.getClass().getName()).log(Level.INFO, "From agent to resource = " + approachTime + " seconds.", this);
-			Logger.getLogger(this.getClass().getName()).log(Level.INFO, "From pickupLoc to dropoffLoc = " + tripTime + " seconds.", this);            
-			Logger.getLogger(this.getClass().getName()).log(Level.INFO, "cruise time = " + cruiseTime + " seconds.", this);
-			Logger.getLogger(this.getClass().getName()).log(Level.INFO, "approach time = " + approachTime + " seconds.", this);
-			Logger.getLogger(this.getClass().getName()).log(Level.INFO, "search time = " + searchTime + " seconds.", this);
-			Logger.getLogger(this.getClass().getName()).log(Level.INFO, "wait time = " + waitTime + " seconds.", this);
-			Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Next agent trigger time = " + bestAgent.time, this);
-
 			// Add the event back to the event queue.
 			return bestAgent;
 		}
 	}
 
+	/*
+	 * The current location of an empty agent.
+	 *
+	 * Assumption: agent.time is the arrival time at the end intersection of agent.loc.road.
+	 * This assumption is true for empty agents. Notice that when agents are initially introduced
+	 * to the system, they are empty and agent.time is not necessarily the time to arrive at the end intersection.
+	 * However, all the agents are triggered once before the earliest resource (see MapWithData.createMapWithData).
+	 * When that happens, agent.time is updated to the end intersection arrival time.
+	 * Thus the assumption is still true.
+	 */
+	LocationOnRoad agentLocationOnRoad(AgentEvent agent) {
+		long travelTimeToEndIntersection = agent.time - time;
+		long travelTimeFromStartIntersection = agent.loc.road.travelTime - travelTimeToEndIntersection;
+		return new LocationOnRoad(agent.loc.road, travelTimeFromStartIntersection);
+	}
+
 	/*
 	 * Handler of an EXPIRED event.
 	 */
 	public void expireHandler() {
 		simulator.expiredResources ++;
 		simulator.totalResourceWaitTime += simulator.ResourceMaximumLifeTime;
-		simulator.waitingResources.remove(this);
-		Logger.getLogger(this.getClass().getName()).log(Level.INFO, "Expired.", this);
+		simulator.removeWaitingResource(this);
+		if (simulator.trace.enabled) {
+			simulator.trace.resourceExpired(id, time);
+		}
 
 	}
 }
@@ -0,0 +1,115 @@
+package COMSETsystem;
+
+import java.util.Iterator;
+
+import DataParsing.MapWithData;
+import DataParsing.MatchedResource;
+
+/**
+ * The ResourceFeedEvent feeds the resources of a resource file sorted by time into the event
+ * queue as the simulation goes, instead of creating all the resource events before the
+ * simulation starts (see Simulator.setResourceLookahead). Only the resources that become
+ * available within the lookahead window, lookahead seconds from the current time, are in the
+ * queue; the others are still in the file.
+ *
+ * The feed is triggered at the time the next resource to read enters the window. It reads and
+ * map-matches the resources up to the end of the window and schedules itself again. A resource
+ * that is out of order by more than the window would become available in the past; it becomes
+ * available at the current time instead, and the number of such resources is reported.
+ *
+ * The simulation end time, the expiration time of the last resource, is only known once the
+ * whole file is read. Until then the end time of the simulator is Long.MAX_VALUE.
+ */
+public class ResourceFeedEvent extends Event {
+
+	// The matched resources not read yet
+	private final Iterator<MatchedResource> resources;
+
+	// The length of the window in seconds
+	private final long lookahead;
+
+	// The next resource to feed; null if all the resources have been fed
+	private MatchedResource next;
+
+	// The latest time a resource fed so far may be dropped off
+	private long latestResourceTime = -1;
+
+	// The number of resources that became available later than their time
+	private long lateResources = 0;
+
+	/**
+	 * Constructor for class ResourceFeedEvent.
+	 *
+	 * @param resources the matched resources, sorted by time
+	 * @param lookahead the length of the window in seconds, at least 1
+	 * @param simulator the simulator object
+	 */
+	public ResourceFeedEvent(Iterator<MatchedResource> resources, long lookahead, Simulator simulator) {
+		super(0, simulator);
+		this.resources = resources;
+		this.lookahead = lookahead;
+		next = resources.hasNext() ? resources.next() : null;
+	}
+
+	/**
+	 * Feed the resources of the first window into the events of a MapWithData, before the
+	 * simulation starts, and schedule the feed of the next window.
+	 *
+	 * @param mapWD the MapWithData whose events are to be fed
+	 * @return the simulation end time if all the resources have been fed; Long.MAX_VALUE otherwise
+	 */
+	public long start(MapWithData mapWD) {
+		if (next == null) {
+			return -1;
+		}
+		mapWD.earliestResourceTime = next.time;
+		time = next.time;
+		if (feed(mapWD.events)) {
+			return latestResourceTime;
+		}
+		mapWD.events.add(this);
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Feed the resources of the window starting at the current time.
+	 */
+	@Override
+	Event trigger() throws Exception {
+		if (feed(simulator.events)) {
+			simulator.simulationEndTime = latestResourceTime;
+			return null;
+		}
+		return this;
+	}
+
+	/**
+	 * Feed the resources up to the end of the window and set the time of the next feed.
+	 *
+	 * @return true if all the resources have been fed
+	 */
+	private boolean feed(EventScheduler events) {
+		long windowEnd = time + lookahead;
+		while (next != null && next.time < windowEnd) {
+			long availableTime = next.time;
+			if (availableTime < time) {
+				availableTime = time;
+				lateResources++;
+			}
+			ResourceEvent ev = new ResourceEvent(next.pickupLoc, next.dropoffLoc, availableTime, next.tripTime, simulator);
+			events.add(ev);
+			latestResourceTime = Math.max(latestResourceTime, availableTime + simulator.ResourceMaximumLifeTime + ev.tripTime);
+			next = resources.hasNext() ? resources.next() : null;
+		}
+		if (next == null) {
+			if (lateResources > 0) {
+				System.out.println(lateResources + " resources were out of order by more than the lookahead window and became available late.");
+			}
+			return true;
+		}
+		// Trigger again when the next resource enters the window, i.e., the first time at which
+		// the end of the window is after it.
+		time = Math.max(time + 1, next.time - lookahead + 1);
+		return false;
+	}
+}
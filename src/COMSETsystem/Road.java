@@ -30,7 +30,18 @@ public class Road implements Comparable<Road> {
      * Constructing an "empty" road object.
      */
 	public Road() {
-		this.id = maxId++;
+		this(maxId++);
+	}
+
+	/**
+	 * Constructing an "empty" road object with a given id, e.g., to restore a map from a
+	 * snapshot. Later roads get larger ids.
+	 *
+	 * @param id the id of the road
+	 */
+	public Road(long id) {
+		this.id = id;
+		maxId = Math.max(maxId, id + 1);
 		this.length = 0;
 		this.travelTime = 0;
 		links = new ArrayList<>();
@@ -0,0 +1,70 @@
+package COMSETsystem;
+
+/**
+ * A compact adjacency representation of the roads of a map for shortest path searches.
+ * Intersections are identified by their pathTableIndex. The roads leaving (or, for a reversed
+ * graph, entering) intersection i are stored at positions first[i] to first[i + 1] - 1 of the
+ * other and travelTime arrays, in increasing order of road id, i.e., in the order of
+ * Intersection.getRoadsFrom() (or getRoadsTo()).
+ */
+class RoadGraph {
+
+	// the number of intersections
+	final int size;
+
+	// offsets into other and travelTime, one per intersection plus one
+	final int[] first;
+
+	// pathTableIndex of the intersection at the other end of each road
+	final int[] other;
+
+	// travel time of each road
+	final long[] travelTime;
+
+	private RoadGraph(int size, int roadCount) {
+		this.size = size;
+		first = new int[size + 1];
+		other = new int[roadCount];
+		travelTime = new long[roadCount];
+	}
+
+	/**
+	 * Build the graph of the roads leaving each intersection.
+	 *
+	 * @param intersectionArray the intersections of a map indexed by pathTableIndex
+	 * @return the forward graph
+	 */
+	static RoadGraph forward(Intersection[] intersectionArray) {
+		return build(intersectionArray, false);
+	}
+
+	/**
+	 * Build the graph of the roads entering each intersection.
+	 *
+	 * @param intersectionArray the intersections of a map indexed by pathTableIndex
+	 * @return the reversed graph
+	 */
+	static RoadGraph reverse(Intersection[] intersectionArray) {
+		return build(intersectionArray, true);
+	}
+
+	private static RoadGraph build(Intersection[] intersectionArray, boolean reversed) {
+		int roadCount = 0;
+		for (Intersection intersection : intersectionArray) {
+			roadCount += reversed ? intersection.roadsMapTo.size() : intersection.roadsMapFrom.size();
+		}
+		RoadGraph graph = new RoadGraph(intersectionArray.length, roadCount);
+		int k = 0;
+		for (int i = 0; i < intersectionArray.length; i++) {
+			graph.first[i] = k;
+			Intersection intersection = intersectionArray[i];
+			for (Road road : reversed ? intersection.getRoadsTo() : intersection.getRoadsFrom()) {
+				graph.other[k] = reversed ? road.from.pathTableIndex : road.to.pathTableIndex;
+				graph.travelTime[k] = road.travelTime;
+				k++;
+			}
+		}
+		graph.first[intersectionArray.length] = k;
+		return graph;
+	}
+}
@@ -0,0 +1,56 @@
+package COMSETsystem;
+
+/**
+ * The statistics of a simulation, as reported at the end of Simulator.run, for a program that
+ * runs simulations and compares them, e.g., Sweep.
+ */
+public class SimulationResult {
+
+	// The configuration of the simulation
+	public final String agentClassName;
+	public final long numberOfAgents;
+	public final long resourceMaximumLifeTime;
+
+	// The number of resources, the number of resources assigned to agents and the number of resources expired
+	public final long resources;
+	public final long assignments;
+	public final long expiredResources;
+
+	// The average times in seconds; 0 if there is nothing to average
+	public final long averageAgentSearchTime;
+	public final long averageResourceWaitTime;
+	public final long averageAgentCruiseTime;
+	public final long averageAgentApproachTime;
+	public final long averageResourceTripTime;
+
+	// The wall-clock time of the simulation in seconds
+	public final long runningTime;
+
+	SimulationResult(String agentClassName, long numberOfAgents, long resourceMaximumLifeTime, long resources,
+			long assignments, long expiredResources, long totalAgentSearchTime, long searches, long totalResourceWaitTime,
+			long totalAgentCruiseTime, long totalAgentApproachTime, long totalResourceTripTime, long runningTime) {
+		this.agentClassName = agentClassName;
+		this.numberOfAgents = numberOfAgents;
+		this.resourceMaximumLifeTime = resourceMaximumLifeTime;
+		this.resources = resources;
+		this.assignments = assignments;
+		this.expiredResources = expiredResources;
+		this.averageAgentSearchTime = average(totalAgentSearchTime, searches);
+		this.averageResourceWaitTime = average(totalResourceWaitTime, resources);
+		this.averageAgentCruiseTime = average(totalAgentCruiseTime, assignments);
+		this.averageAgentApproachTime = average(totalAgentApproachTime, assignments);
+		this.averageResourceTripTime = average(totalResourceTripTime, assignments);
+		this.runningTime = runningTime;
+	}
+
+	/**
+	 * @return the percentage of resources that expired, rounded down; 0 if there are no resources
+	 */
+	public long expirationPercentage() {
+		return average(expiredResources * 100, resources);
+	}
+
+	private static long average(long total, long count) {
+		return count == 0 ? 0 : Math.floorDiv(total, count);
+	}
+}
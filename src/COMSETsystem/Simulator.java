@@ -2,8 +2,10 @@ package COMSETsystem;
 
 import MapCreation.*;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.function.ToLongFunction;
 import me.tongfei.progressbar.*;
 
 
@@ -13,7 +15,7 @@ import DataParsing.*;
  * The Simulator class defines the major steps of the simulation. It is
  * responsible for loading the map, creating the necessary number of agents,
  * creating a respective AgentEvent for each of them such that they are added
- * to the events PriorityQueue. Furthermore it is also responsible for dealing 
+ * to the events queue. Furthermore it is also responsible for dealing 
  * with the arrival of resources, map matching them to the map, and assigning  
  * them to agents. This produces the score according to the scoring rules.
  * <p>
@@ -21,7 +23,7 @@ import DataParsing.*;
  * corresponds to when something will be empty and thus needs some
  * interaction (triggering). There's an event corresponding to every existent
  * Agent and for every resource that hasn't arrived yet. All of this events are
- * in a PriorityQueue called events which is ordered by their time in an
+ * in an EventQueue called events which is ordered by their time in an
  * increasing way.
  */
 public class Simulator {
@@ -34,13 +36,19 @@ public class Simulator {
 	protected CityMap mapForAgents;
 
 	// The event queue.
-	protected PriorityQueue<Event> events = new PriorityQueue<>();
+	protected EventScheduler events = new EventQueue();
 
 	// The set of empty agents.
-	protected TreeSet<AgentEvent> emptyAgents = new TreeSet<>(new AgentEventComparator());
+	protected EventIdSet<AgentEvent> emptyAgents = new EventIdSet<>();
+
+	// The empty agents grouped by location to speed up the search for the closest agent; null to check all the empty agents.
+	EmptyAgentIndex emptyAgentIndex = null;
 
 	// The set of resources that with no agent assigned to it yet.
-	protected TreeSet<ResourceEvent> waitingResources = new TreeSet<>(new ResourceEventComparator());
+	protected EventIdSet<ResourceEvent> waitingResources = new EventIdSet<>();
+
+	// The waiting resources grouped by location to speed up the search for the closest resource; null to check all the waiting resources.
+	WaitingResourceIndex waitingResourceIndex = null;
 
 	// The maximum life time of a resource in seconds. This is a parameter of the simulator. 
 	public long ResourceMaximumLifeTime; 
@@ -96,6 +104,67 @@ public class Simulator {
 	// A class that extends BaseAgent and implements a search routing strategy
 	protected final Class<? extends BaseAgent> agentClass;
 
+	// The factory of the agents
+	protected final AgentFactory agentFactory;
+
+	// Whether the planSearchRoute call after a dropoff is deferred until the agent is next called
+	boolean deferSearchRoutes = false;
+
+	// The number of threads used to pre-compute the all-pair travel times.
+	protected int pathTableThreads = Runtime.getRuntime().availableProcessors();
+
+	// The number of threads used to load and map-match the resources
+	protected int resourceThreads = Runtime.getRuntime().availableProcessors();
+
+	// The directory in which precomputed data derived from the map is cached; null for no caching.
+	protected String cacheDirectory = null;
+
+	// Whether the path table is read directly from the memory-mapped cache file.
+	protected boolean pathTableMemoryMapped = false;
+
+	// Whether the empty agents are indexed by location.
+	protected boolean useAgentIndex = true;
+
+	// Whether the waiting resources are indexed by location.
+	protected boolean useResourceIndex = true;
+
+	// The number of empty agents from which they are checked in parallel when a resource becomes
+	// available and the empty agents are not indexed; 0 to always check them serially.
+	protected int parallelScanThreshold = 0;
+
+	// The lookahead window in seconds within which resources are read from the resource file as the
+	// simulation goes; 0 to load all the resources before the simulation starts.
+	protected long resourceLookahead = 0;
+
+	// An estimate of simulationEndTime while it is not known yet, for the progress bar
+	protected long estimatedEndTime = -1;
+
+	// The number of threads in which agents reaching intersections at the same time choose their
+	// next intersections; 1 to trigger every event alone.
+	protected int simulationThreads = 1;
+
+	// The time between two batch assignments in seconds; 0 to assign every resource as soon as it becomes available.
+	protected long assignmentWindow = 0;
+
+	// Whether the progress bar and the report of run are left out, e.g., when simulations run concurrently
+	protected boolean quiet = false;
+
+	// The wall-clock time of the last run in seconds
+	protected long runningTime = 0;
+
+	// The id of the next event created for this simulator
+	long nextEventId = 0;
+
+	// The trace of agent and resource events; disabled unless set.
+	EventTrace trace = new EventTrace();
+
+	// The kind of event queue: HEAP_SCHEDULER or CALENDAR_SCHEDULER.
+	protected String eventScheduler = HEAP_SCHEDULER;
+
+	// The names of the event queue kinds; see EventQueue and CalendarEventQueue.
+	public static final String HEAP_SCHEDULER = "heap";
+	public static final String CALENDAR_SCHEDULER = "calendar";
+
 	/**
 	 * Constructor of the class Main. This is made such that the type of
 	 * agent/resourceAnalyzer used is not hardcoded and the users can choose
@@ -106,6 +175,7 @@ public class Simulator {
 	 */
 	public Simulator(Class<? extends BaseAgent> agentClass) {
 		this.agentClass = agentClass;
+		this.agentFactory = new AgentFactory(this);
 	}
 
 	/**
@@ -137,37 +207,144 @@ public class Simulator {
 
 		this.resourceFile = resourceFile;
 
-		MapCreator creator = new MapCreator(this.mapJSONFile, this.boundingPolygonKMLFile, speedReduction);
-		System.out.println("Creating the map...");
+		map = createMap(mapJSONFile, boundingPolygonKMLFile, speedReduction, pathTableThreads, cacheDirectory, pathTableMemoryMapped);
+
+		setUp(agentPlacementRandomSeed, mapWD -> {
+			if (resourceLookahead > 0) {
+				// map match resources as the simulation goes
+				System.out.println("Streaming resources with a lookahead of " + resourceLookahead + " seconds...");
+				estimatedEndTime = mapWD.lastResourceTime() + ResourceMaximumLifeTime;
+				return new ResourceFeedEvent(mapWD.streamResources(), resourceLookahead, this).start(mapWD);
+			}
+			// map match resources
+			System.out.println("Loading and map-matching resources...");
+			return mapWD.createResourceEvents(this, mapWD.matchResources(resourceThreads));
+		});
+	}
+
+	/**
+	 * Configure the simulation system on a map that has already been created and resources that
+	 * have already been matched to it, e.g., to run several simulations on the same map and
+	 * dataset (see Sweep). The map and the matched resources are only read, so that they may be
+	 * shared by simulators running concurrently.
+	 *
+	 * @param map The map, with the all pair travel times computed; see createMap
+	 * @param resources The resources matched to the map; see MapWithData.matchResources
+	 * @param totalAgents The total number of agents to deploy
+	 * @param maximumLifeTime The maximum life time of a resource
+	 * @param agentPlacementRandomSeed The see for the random number of generator when placing the agents
+	 */
+	public void configure(CityMap map, List<MatchedResource> resources, long totalAgents, long maximumLifeTime, long agentPlacementRandomSeed) {
+
+		this.totalAgents = totalAgents;
+
+		this.ResourceMaximumLifeTime = maximumLifeTime;
+
+		this.map = map;
+
+		setUp(agentPlacementRandomSeed, mapWD -> mapWD.createResourceEvents(this, resources));
+	}
+
+	/**
+	 * Create a map from a map file and a bounding polygon KML file, and pre-compute the shortest
+	 * travel times between all pairs of intersections, unless the map and the travel times have
+	 * been cached by an earlier run on the same map (see MapSnapshot and PathTableCache).
+	 *
+	 * @param mapJSONFile The map file
+	 * @param boundingPolygonKMLFile The KML file defining a bounding polygon of the simulated area
+	 * @param speedReduction The speed reduction to accommodate traffic jams and turn delays
+	 * @param pathTableThreads The number of threads used to pre-compute the all-pair travel times
+	 * @param cacheDirectory The directory in which the map and the path table are cached; null for no cache
+	 * @param pathTableMemoryMapped true to keep the cached path table memory-mapped
+	 * @return the map
+	 */
+	public static CityMap createMap(String mapJSONFile, String boundingPolygonKMLFile, double speedReduction,
+			int pathTableThreads, String cacheDirectory, boolean pathTableMemoryMapped) {
+		// Restore the map and the path table from the cache directory if they have been cached
+		// by an earlier run on the same map.
+		MapSnapshot mapSnapshot = null;
+		PathTableCache pathTableCache = null;
+		if (cacheDirectory != null) {
+			try {
+				mapSnapshot = new MapSnapshot(cacheDirectory, mapJSONFile, boundingPolygonKMLFile, speedReduction);
+				pathTableCache = new PathTableCache(cacheDirectory, mapJSONFile, boundingPolygonKMLFile, speedReduction);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 
-		creator.createMap();
+		CityMap map = mapSnapshot != null ? mapSnapshot.load() : null;
+		if (map != null) {
+			System.out.println("Loaded the map from " + mapSnapshot.file());
+		} else {
+			MapCreator creator = new MapCreator(mapJSONFile, boundingPolygonKMLFile, speedReduction);
+			System.out.println("Creating the map...");
 
-		// Output the map
-		map = creator.outputCityMap();
+			creator.createMap();
 
-		// Pre-compute shortest travel times between all pairs of intersections.
-		System.out.println("Pre-computing all pair travel times...");
-		map.calcTravelTimes();
+			// Output the map
+			map = creator.outputCityMap();
+
+			if (mapSnapshot != null) {
+				mapSnapshot.store(creator, map);
+			}
+		}
+
+		// Pre-compute shortest travel times between all pairs of intersections, unless they
+		// have been cached by an earlier run on the same map.
+		if (pathTableCache != null && pathTableCache.load(map, pathTableMemoryMapped)) {
+			System.out.println("Loaded all pair travel times from " + pathTableCache.file());
+		} else {
+			System.out.println("Pre-computing all pair travel times...");
+			map.calcTravelTimes(pathTableThreads);
+			if (pathTableCache != null) {
+				pathTableCache.store(map);
+				if (pathTableMemoryMapped) {
+					// Switch to the shared file so that the computed copy can be garbage collected.
+					pathTableCache.load(map, true);
+				}
+			}
+		}
+		System.out.println(map.pathTableMemoryReport());
+		return map;
+	}
+
+	/**
+	 * Set up the indexes, the resource events, the agents and the event queue on the map.
+	 *
+	 * @param agentPlacementRandomSeed The see for the random number of generator when placing the agents
+	 * @param resourceLoader creates the resource events and returns the latest resource time
+	 */
+	private void setUp(long agentPlacementRandomSeed, ToLongFunction<MapWithData> resourceLoader) {
+		if (useAgentIndex) {
+			emptyAgentIndex = new EmptyAgentIndex(map);
+		}
+		if (useResourceIndex) {
+			waitingResourceIndex = new WaitingResourceIndex(map, ResourceMaximumLifeTime);
+		}
 
 		// Make a map copy for agents to use so that an agent cannot modify the map used by
 		// the simulator
 		mapForAgents = map.makeCopy();
 
-		MapWithData mapWD = new MapWithData(map, this.resourceFile, agentPlacementRandomSeed);
-
-		// map match resources
-		System.out.println("Loading and map-matching resources...");
-		long latestResourceTime = mapWD.createMapWithData(this);
+		MapWithData mapWD = new MapWithData(map, this.resourceFile, agentPlacementRandomSeed, createEventScheduler());
 
 		// The simulation end time is the expiration time of the last resource.
-		this.simulationEndTime = latestResourceTime;
+		this.simulationEndTime = resourceLoader.applyAsLong(mapWD);
 
 		// Deploy agents at random locations of the map.
-		System.out.println("Randomly placing " + this.totalAgents + " agents on the map...");
+		if (!quiet) {
+			System.out.println("Randomly placing " + this.totalAgents + " agents on the map...");
+		}
 		agents = mapWD.placeAgentsRandomly(this);
 
 		// Initialize the event queue.
 		events = mapWD.getEvents();
+
+		// In batch mode, the first batch is made when the earliest resource becomes available.
+		if (assignmentWindow > 0) {
+			events.add(new AssignmentEvent(mapWD.earliestResourceTime, assignmentWindow, this));
+		}
 	}
 
 	/**
@@ -178,29 +355,75 @@ public class Simulator {
 	 * @throws Exception since triggering events may create an Exception
 	 */
 	public void run() throws Exception {
-		System.out.println("Running the simulation...");
+		if (!quiet) {
+			System.out.println("Running the simulation...");
+		}
 
 		ScoreInfo score = new ScoreInfo();
+		ParallelAgentMoves moves = null;
 		if (map == null) {
 			System.out.println("map is null at beginning of run");
 		}
-		try (ProgressBar pb = new ProgressBar("Progress:", 100, ProgressBarStyle.ASCII)) {
+		ProgressBar pb = quiet ? null : new ProgressBar("Progress:", 100, ProgressBarStyle.ASCII);
+		try {
 			long beginTime = events.peek().time;
+			ProgressReporter progress = new ProgressReporter(pb, beginTime, simulationEndTime == Long.MAX_VALUE ? estimatedEndTime : simulationEndTime);
+			if (simulationThreads > 1) {
+				if (agentFactory.isThreadSafe()) {
+					moves = new ParallelAgentMoves(this, simulationThreads);
+					deferSearchRoutes = true;
+				} else {
+					System.out.println(agentClass.getName() + " does not implement ThreadSafeAgent; running in one thread.");
+				}
+			}
 			while (events.peek().time <= simulationEndTime) {
 				Event toTrigger = events.poll();
-				pb.stepTo((long)(((float)(toTrigger.time - beginTime)) / (simulationEndTime - beginTime) * 100.0));
+				progress.eventTriggered(toTrigger.time, events.size());
+				if (moves != null && moves.canJoin(toTrigger, toTrigger.time)) {
+					moves.trigger((AgentEvent) toTrigger, progress);
+					continue;
+				}
 				Event e = toTrigger.trigger();
 				if (e != null) { 
 					events.add(e);
 				}
 			}
+			progress.finish();
 		} catch (Exception e) {
 			e.printStackTrace();
+		} finally {
+			if (moves != null) {
+				moves.shutdown();
+			}
+			deferSearchRoutes = false;
+			if (pb != null) {
+				pb.close();
+			}
 		}
+		trace.close();
+		runningTime = score.runningTime();
 
-		System.out.println("Simulation finished.");
+		if (!quiet) {
+			System.out.println("Simulation finished.");
 
-		score.end();
+			score.end();
+		}
+	}
+
+	/**
+	 * @return the statistics of the simulation; see run
+	 */
+	public SimulationResult result() {
+		// Collect the "search" time for the agents that are empty at the end of the simulation.
+		// These agents are in search status and therefore the amount of time they spend on
+		// searching until the end of the simulation should be counted toward the total search time.
+		long totalRemainTime = 0;
+		for (AgentEvent ae: emptyAgents) {
+			totalRemainTime += (simulationEndTime - ae.startSearchTime);
+		}
+		return new SimulationResult(agentClass.getName(), totalAgents, ResourceMaximumLifeTime, totalResources,
+				totalAssignments, expiredResources, totalAgentSearchTime + totalRemainTime, totalAssignments + emptyAgents.size(),
+				totalResourceWaitTime, totalAgentCruiseTime, totalAgentApproachTime, totalResourceTripTime, runningTime);
 	}
 
 	/**
@@ -259,51 +482,49 @@ public class Simulator {
 			System.out.print(sb.toString());
 		}
 
+		/**
+		 * @return the time in seconds since the simulation started
+		 */
+		long runningTime() {
+			return (System.nanoTime() - startTime) / 1000000000;
+		}
+
 		/**
 		 * Calculate the time the simulation took by taking the time right now
 		 * and comparing to the time when the simulation started. Add the total
 		 * time to the report and the score as well. Furthermore, calculate the
 		 * allocated memory by the participant's implementation by comparing the
 		 * previous allocated memory with the current allocated memory. Print
-		 * the Performance Report.
+		 * the Performance Report. The statistics are those of result().
 		 */
 		void end() {
 			// Empty the string builder
 			sb.setLength(0);
 
-			long endTime = System.nanoTime();
-			long totalTime = (endTime - startTime) / 1000000000;
+			SimulationResult result = result();
 
-			System.out.println("\nrunning time: " + totalTime);
+			System.out.println("\nrunning time: " + result.runningTime);
 
 			System.out.println("\n***Simulation environment***");
 			System.out.println("JSON map file: " + mapJSONFile);
 			System.out.println("Resource dataset file: " + resourceFile);
 			System.out.println("Bounding polygon KML file: " + boundingPolygonKMLFile);
-			System.out.println("Number of agents: " + totalAgents);
-			System.out.println("Number of resources: " + totalResources);
-			System.out.println("Resource Maximum Life Time: " + ResourceMaximumLifeTime + " seconds");
-			System.out.println("Agent class: " + agentClass.getName());
+			System.out.println("Number of agents: " + result.numberOfAgents);
+			System.out.println("Number of resources: " + result.resources);
+			System.out.println("Resource Maximum Life Time: " + result.resourceMaximumLifeTime + " seconds");
+			System.out.println("Agent class: " + result.agentClassName);
 
 			System.out.println("\n***Statistics***");
 		
-			if (totalResources != 0) {
-				// Collect the "search" time for the agents that are empty at the end of the simulation.
-				// These agents are in search status and therefore the amount of time they spend on
-				// searching until the end of the simulation should be counted toward the total search time.
-				long totalRemainTime = 0;
-				for (AgentEvent ae: emptyAgents) {
-					totalRemainTime += (simulationEndTime - ae.startSearchTime); 
-				}
-
-				sb.append("average agent search time: " + Math.floorDiv(totalAgentSearchTime + totalRemainTime, (totalAssignments + emptyAgents.size())) + " seconds \n");
-				sb.append("average resource wait time: " + Math.floorDiv(totalResourceWaitTime, totalResources) + " seconds \n");
-				sb.append("resource expiration percentage: " + Math.floorDiv(expiredResources * 100, totalResources) + "%\n");
+			if (result.resources != 0) {
+				sb.append("average agent search time: " + result.averageAgentSearchTime + " seconds \n");
+				sb.append("average resource wait time: " + result.averageResourceWaitTime + " seconds \n");
+				sb.append("resource expiration percentage: " + result.expirationPercentage() + "%\n");
 				sb.append("\n");
-				sb.append("average agent cruise time: " + Math.floorDiv(totalAgentCruiseTime, totalAssignments) + " seconds \n");
-				sb.append("average agent approach time: " + Math.floorDiv(totalAgentApproachTime, totalAssignments) + " seconds \n");
-				sb.append("average resource trip time: " + Math.floorDiv(totalResourceTripTime, totalAssignments) + " seconds \n");
-				sb.append("total number of assignments: " + totalAssignments + "\n");
+				sb.append("average agent cruise time: " + result.averageAgentCruiseTime + " seconds \n");
+				sb.append("average agent approach time: " + result.averageAgentApproachTime + " seconds \n");
+				sb.append("average resource trip time: " + result.averageResourceTripTime + " seconds \n");
+				sb.append("total number of assignments: " + result.assignments + "\n");
 			} else {
 				sb.append("No resources.\n");
 			}
@@ -313,49 +534,218 @@ public class Simulator {
 	}
 
 	/**
-	 * Compares agent events
+	 * Sets the number of threads used to pre-compute the all-pair travel times.
+	 * Must be called before configure.
+	 *
+	 * @param pathTableThreads the number of threads
 	 */
-	class AgentEventComparator implements Comparator<AgentEvent> {
+	public void setPathTableThreads(int pathTableThreads) {
+		this.pathTableThreads = pathTableThreads;
+	}
 
-		/**
-		 * Checks if two agentEvents are the same by checking their ids.
-		 * 
-		 * @param a1 The first agent event
-		 * @param a2 The second agent event
-		 * @return returns 0 if the two agent events are the same, 1 if the id of
-		 * the first agent event is bigger than the id of the second agent event,
-		 * -1 otherwise
-		 */
-		public int compare(AgentEvent a1, AgentEvent a2) {
-			if (a1.id == a2.id)
-				return 0;
-			else if (a1.id > a2.id)
-				return 1;
-			else
-				return -1;
+	/**
+	 * Sets the directory in which precomputed data derived from the map, such as the all-pair
+	 * travel times, is cached between runs. Must be called before configure.
+	 *
+	 * @param cacheDirectory the cache directory; null disables caching
+	 */
+	public void setCacheDirectory(String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	/**
+	 * Sets whether the path table is read directly from the memory-mapped cache file rather
+	 * than copied into the Java heap. Simulators running in different JVMs on the same cache
+	 * file then share one copy of the table through the page cache. Has no effect unless a
+	 * cache directory is set. Must be called before configure.
+	 *
+	 * @param pathTableMemoryMapped true to memory-map the path table
+	 */
+	public void setPathTableMemoryMapped(boolean pathTableMemoryMapped) {
+		this.pathTableMemoryMapped = pathTableMemoryMapped;
+	}
+
+	/**
+	 * Sets whether the empty agents are indexed by location, so that a new resource only checks
+	 * the empty agents that may reach it before it expires rather than all of them. The agent
+	 * assigned to every resource is the same either way. Must be called before configure.
+	 *
+	 * @param useAgentIndex true to index the empty agents
+	 */
+	public void setUseAgentIndex(boolean useAgentIndex) {
+		this.useAgentIndex = useAgentIndex;
+	}
+
+	/**
+	 * Sets whether the waiting resources are indexed by location, so that an agent dropping off
+	 * a resource only checks the waiting resources it may reach in time rather than all of them.
+	 * The resource assigned to every agent is the same either way. Must be called before configure.
+	 *
+	 * @param useResourceIndex true to index the waiting resources
+	 */
+	public void setUseResourceIndex(boolean useResourceIndex) {
+		this.useResourceIndex = useResourceIndex;
+	}
+
+	/**
+	 * Sets the kind of queue that holds the pending events. Events are triggered in the
+	 * same order with either kind. Must be called before configure.
+	 *
+	 * @param eventScheduler HEAP_SCHEDULER for a binary heap, CALENDAR_SCHEDULER for a
+	 * calendar queue with one bucket per second
+	 */
+	public void setEventScheduler(String eventScheduler) {
+		if (!HEAP_SCHEDULER.equals(eventScheduler) && !CALENDAR_SCHEDULER.equals(eventScheduler)) {
+			throw new IllegalArgumentException("unknown event scheduler: " + eventScheduler);
 		}
+		this.eventScheduler = eventScheduler;
 	}
 
 	/**
-	 * Compares resource events
+	 * Sets the number of empty agents from which they are checked in parallel, in the common
+	 * fork-join pool, when a resource becomes available. Only applies when the empty agents are
+	 * not indexed (see setUseAgentIndex). The agent assigned to every resource is the same either way.
+	 *
+	 * @param parallelScanThreshold the smallest number of empty agents checked in parallel; 0 to
+	 * always check them serially
 	 */
-	class ResourceEventComparator implements Comparator<ResourceEvent> {
-		/**
-		 * Checks if two resourceEvents are the same by checking their ids.
-		 * 
-		 * @param a1 The first resource event
-		 * @param a2 The second resource event
-		 * @return returns 0 if the two resource events are the same, 1 if the id of
-		 * the resource event is bigger than the id of the second resource event,
-		 * -1 otherwise
-		 */
-		public int compare(ResourceEvent a1, ResourceEvent a2) {
-			if (a1.id == a2.id)
-				return 0;
-			else if (a1.id > a2.id)
-				return 1;
-			else
-				return -1;
+	public void setParallelScanThreshold(int parallelScanThreshold) {
+		this.parallelScanThreshold = parallelScanThreshold;
+	}
+
+	/**
+	 * Sets the number of threads in which the agents that reach intersections at the same time
+	 * choose their next intersections (see ParallelAgentMoves), and in which the agents are created
+	 * (see AgentFactory). Only applies to agent classes that implement ThreadSafeAgent. The moves
+	 * are still made one by one in the order of the event queue, and every other event is
+	 * triggered alone, so the results are the same as with one thread. The planSearchRoute call
+	 * after a dropoff is deferred until the agent next chooses an intersection or is assigned,
+	 * so that it runs in parallel too.
+	 *
+	 * @param simulationThreads the number of threads; 1 to trigger every event alone
+	 */
+	public void setSimulationThreads(int simulationThreads) {
+		this.simulationThreads = simulationThreads;
+	}
+
+	/**
+	 * Sets whether the progress bar and the report of run are left out, e.g., when simulations
+	 * run concurrently. The statistics are available from result either way.
+	 *
+	 * @param quiet true to leave out the progress bar and the report
+	 */
+	public void setQuiet(boolean quiet) {
+		this.quiet = quiet;
+	}
+
+	/**
+	 * @return the factory of the agents
+	 */
+	public AgentFactory getAgentFactory() {
+		return agentFactory;
+	}
+
+	/**
+	 * Sets the number of threads used to load and map-match the resources before the simulation
+	 * starts (see MapWithData.matchResources(int)). The resources are the same with any number of
+	 * threads. Must be called before configure.
+	 *
+	 * @param resourceThreads the number of threads
+	 */
+	public void setResourceThreads(int resourceThreads) {
+		this.resourceThreads = resourceThreads;
+	}
+
+	/**
+	 * Sets the lookahead window for streaming the resources. With a window of w seconds, the
+	 * resources are read from the resource file and map-matched as the simulation goes, and only
+	 * those that become available within the next w seconds are held in memory (see
+	 * ResourceFeedEvent). The resource file must be sorted by time, up to disorder within the
+	 * window. Since the events, and thus the agents, are numbered in a different order, the
+	 * results differ from those of loading all the resources first. Must be called before configure.
+	 *
+	 * @param resourceLookahead the window in seconds; 0 to load all the resources before the simulation starts
+	 */
+	public void setResourceLookahead(long resourceLookahead) {
+		this.resourceLookahead = resourceLookahead;
+	}
+
+	/**
+	 * Sets the batch assignment window. With a window of w seconds, resources are not assigned
+	 * as soon as they become available, nor when an agent drops off a resource. Instead, every
+	 * w seconds the waiting resources are matched with the empty agents at once, so as to assign
+	 * as many resources as possible with the smallest total approach time (see AssignmentEvent).
+	 * Must be called before configure.
+	 *
+	 * @param assignmentWindow the window in seconds; 0 to assign resources one at a time
+	 */
+	public void setAssignmentWindow(long assignmentWindow) {
+		this.assignmentWindow = assignmentWindow;
+	}
+
+	/**
+	 * Sets the trace to which agent and resource events are recorded, e.g., as log messages
+	 * or to a binary trace file. The trace is closed at the end of run.
+	 *
+	 * @param trace the event trace
+	 */
+	public void setEventTrace(EventTrace trace) {
+		this.trace = trace;
+	}
+
+	/**
+	 * @return an empty event queue of the configured kind
+	 */
+	protected EventScheduler createEventScheduler() {
+		if (CALENDAR_SCHEDULER.equals(eventScheduler)) {
+			return new CalendarEventQueue();
+		}
+		return new EventQueue();
+	}
+
+	/**
+	 * Label an agent as empty.
+	 *
+	 * @param agent the agent, which must not be empty already
+	 */
+	void markAgentEmpty(AgentEvent agent) {
+		emptyAgents.add(agent);
+		if (emptyAgentIndex != null) {
+			emptyAgentIndex.add(agent);
+		}
+	}
+
+	/**
+	 * Label an agent as occupied. Does nothing if the agent is not empty.
+	 *
+	 * @param agent the agent
+	 */
+	void markAgentOccupied(AgentEvent agent) {
+		if (emptyAgents.remove(agent) && emptyAgentIndex != null) {
+			emptyAgentIndex.remove(agent);
+		}
+	}
+
+	/**
+	 * Add a resource to the resources waiting for an agent.
+	 *
+	 * @param resource the resource, which must not be waiting already
+	 */
+	void addWaitingResource(ResourceEvent resource) {
+		waitingResources.add(resource);
+		if (waitingResourceIndex != null) {
+			waitingResourceIndex.add(resource);
+		}
+	}
+
+	/**
+	 * Remove a resource from the resources waiting for an agent. Does nothing if the resource is not waiting.
+	 *
+	 * @param resource the resource
+	 */
+	void removeWaitingResource(ResourceEvent resource) {
+		if (waitingResources.remove(resource) && waitingResourceIndex != null) {
+			waitingResourceIndex.remove(resource);
 		}
 	}
 
@@ -380,9 +770,9 @@ public class Simulator {
 	/**
 	 * Sets the events of the simulation.
 	 * 
-	 * @param events The PriorityQueue of events
+	 * @param events The queue of events
 	 */
-	public void setEvents(PriorityQueue<Event> events) {
+	public void setEvents(EventScheduler events) {
 		this.events = events;
 	}
 
@@ -391,7 +781,7 @@ public class Simulator {
 	 * 
 	 * @return {@code events }
 	 */
-	public PriorityQueue<Event> getEvents() {
+	public EventScheduler getEvents() {
 		return events;
 	}
 
@@ -400,16 +790,16 @@ public class Simulator {
 	 * 
 	 * @return {@code emptyAgents }
 	 */
-	public TreeSet<AgentEvent> getEmptyAgents() {
+	public EventIdSet<AgentEvent> getEmptyAgents() {
 		return emptyAgents;
 	}
 
 	/**
 	 * Sets the empty agents in the simulation
 	 * 
-	 * @param emptyAgents The TreeSet of agent events to set.
+	 * @param emptyAgents The set of agent events to set.
 	 */
-	public void setEmptyAgents(TreeSet<AgentEvent> emptyAgents) {
+	public void setEmptyAgents(EventIdSet<AgentEvent> emptyAgents) {
 		this.emptyAgents = emptyAgents;
 	}
 
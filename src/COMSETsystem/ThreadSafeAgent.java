@@ -0,0 +1,16 @@
+package COMSETsystem;
+
+/**
+ * A marker interface for agent classes that the simulator may call from several threads.
+ *
+ * An agent class implementing ThreadSafeAgent promises that, once one agent has been constructed,
+ * further agents may be constructed concurrently, and that the callbacks of different agents may
+ * run concurrently, as long as the callbacks of one agent run one at a time. In practice this
+ * means that an agent only changes its own state, and that what it shares with other agents, such
+ * as the map or a static data model, is only read after the first agent is constructed.
+ *
+ * The simulator only uses several threads for agents of such classes (see
+ * Simulator.setSimulationThreads), and the results are the same as with one thread.
+ */
+public interface ThreadSafeAgent {
+}
@@ -0,0 +1,139 @@
+package COMSETsystem;
+
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/**
+ * The WaitingResourceIndex groups the waiting resources by the start intersection of the road
+ * they are on, and keeps their pickup deadlines sorted. It is used to find the waiting resource
+ * that an agent can reach the earliest without computing the travel time to every waiting
+ * resource.
+ *
+ * A waiting resource can be assigned to an agent only if the agent reaches it no later than
+ * expirationTime - ResourceMaximumLifeTime (see AgentEvent.dropoffHandler), which is called the
+ * deadline of the resource here. If the latest deadline has already passed, there is nothing to
+ * search. Otherwise, unless the resource is on the same road as the agent and ahead of it, the
+ * agent reaches a resource on a road starting at intersection u no earlier than
+ * currentTime + t + D(a, u), where a is the end intersection of the road of the agent, t is the
+ * travel time from the agent to a, and D is the shortest travel time. The search therefore runs
+ * Dijkstra forwards from a, visits the groups in increasing order of D(a, u), and stops as soon
+ * as this bound exceeds both the best arrival found so far and the latest deadline. The
+ * resources on the road of the agent are checked first.
+ *
+ * The result is the same resource as the one found by checking all the waiting resources in
+ * increasing order of id, i.e., the resource reachable by its deadline with the earliest arrival,
+ * ties broken by the smaller id.
+ */
+class WaitingResourceIndex {
+
+	// The map, used for the exact travel time to every candidate resource
+	private final CityMap map;
+
+	// The maximum life time of a resource, i.e., the difference between the expiration time and the deadline
+	private final long resourceMaximumLifeTime;
+
+	// The waiting resources on the roads starting at each intersection, indexed by pathTableIndex
+	private final ArrayList<ArrayList<ResourceEvent>> groups;
+
+	// The number of waiting resources for every deadline
+	private final TreeMap<Long, Integer> deadlines = new TreeMap<>();
+
+	// The search for the intersections closest to a location
+	private final BoundedDijkstra search;
+
+	/**
+	 * Constructor of WaitingResourceIndex.
+	 *
+	 * @param map the map the resources are on
+	 * @param resourceMaximumLifeTime the maximum life time of a resource
+	 */
+	WaitingResourceIndex(CityMap map, long resourceMaximumLifeTime) {
+		this.map = map;
+		this.resourceMaximumLifeTime = resourceMaximumLifeTime;
+		int size = map.intersections().size();
+		groups = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			groups.add(new ArrayList<>());
+		}
+		search = new BoundedDijkstra(RoadGraph.forward(map.intersectionArray()));
+	}
+
+	/**
+	 * Add a waiting resource.
+	 *
+	 * @param resource the resource
+	 */
+	void add(ResourceEvent resource) {
+		ArrayList<ResourceEvent> group = groups.get(resource.pickupLoc.road.from.pathTableIndex);
+		resource.indexSlot = group.size();
+		group.add(resource);
+		deadlines.merge(deadline(resource), 1, Integer::sum);
+	}
+
+	/**
+	 * Remove a resource that is no longer waiting.
+	 *
+	 * @param resource the resource
+	 */
+	void remove(ResourceEvent resource) {
+		ArrayList<ResourceEvent> group = groups.get(resource.pickupLoc.road.from.pathTableIndex);
+		ResourceEvent last = group.remove(group.size() - 1);
+		if (last != resource) {
+			group.set(resource.indexSlot, last);
+			last.indexSlot = resource.indexSlot;
+		}
+		resource.indexSlot = -1;
+		deadlines.compute(deadline(resource), (deadline, count) -> count == 1 ? null : count - 1);
+	}
+
+	/**
+	 * Find the waiting resource that an agent reaches the earliest among those it reaches
+	 * by their deadline.
+	 *
+	 * @param location the location of the agent
+	 * @param time the current time
+	 * @return the resource with the earliest arrival, ties broken by the smaller id;
+	 *         null if no resource can be reached by its deadline
+	 */
+	ResourceEvent earliestReachable(LocationOnRoad location, long time) {
+		if (deadlines.isEmpty() || deadlines.lastKey() < time) {
+			return null;
+		}
+		long latestDeadline = deadlines.lastKey();
+
+		ResourceEvent best = null;
+		long bestArrival = Long.MAX_VALUE;
+
+		// The resources on the road of the agent may be ahead of it on the same road.
+		for (ResourceEvent resource : groups.get(location.road.from.pathTableIndex)) {
+			long arrival = time + map.travelTimeBetween(location, resource.pickupLoc);
+			if (arrival <= deadline(resource) && (arrival < bestArrival || (arrival == bestArrival && resource.id < best.id))) {
+				best = resource;
+				bestArrival = arrival;
+			}
+		}
+
+		// Visit the other resources in increasing order of travel time from the road of the agent.
+		long travelTimeToEndIntersection = location.road.travelTime - location.travelTimeFromStartIntersection;
+		search.start(location.road.to.pathTableIndex);
+		while (search.hasNext()) {
+			long lowerBound = time + travelTimeToEndIntersection + search.nextCost();
+			if (lowerBound > bestArrival || lowerBound > latestDeadline) {
+				break;
+			}
+			for (ResourceEvent resource : groups.get(search.next())) {
+				long arrival = time + map.travelTimeBetween(location, resource.pickupLoc);
+				if (arrival <= deadline(resource) && (arrival < bestArrival || (arrival == bestArrival && resource.id < best.id))) {
+					best = resource;
+					bestArrival = arrival;
+				}
+			}
+		}
+
+		return best;
+	}
+
+	private long deadline(ResourceEvent resource) {
+		return resource.expirationTime - resourceMaximumLifeTime;
+	}
+}
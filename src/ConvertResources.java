@@ -0,0 +1,77 @@
+import COMSETsystem.CityMap;
+import COMSETsystem.Simulator;
+import DataParsing.MapWithData;
+import DataParsing.MatchedResource;
+import DataParsing.ResourceDataset;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.LogManager;
+
+/**
+ * The ConvertResources class parses the csv resource dataset file of etc/config.properties,
+ * matches the resources to the map and writes them to a resource dataset file (see
+ * ResourceDataset). Setting comset.dataset_file to that file then skips the parsing and the map
+ * matching in every later run on the same map. The file is only valid for the map it was
+ * converted on, so it must be converted again when the map JSON file, the bounding polygon KML
+ * file or the speed reduction changes.
+ *
+ * The resource dataset file is given as the only argument; it defaults to the csv file with the
+ * extension .bin.
+ *
+ * Usage: mvn exec:java -Dexec.mainClass="ConvertResources" -Dexec.args="datasets/2016-04-06.bin"
+ */
+public class ConvertResources {
+
+	public static void main(String[] args) throws IOException {
+
+		String configFile = "etc/config.properties";
+		try {
+			Properties prop = new Properties();
+			prop.load(new FileInputStream(configFile));
+
+			String mapJSONFile = prop.getProperty("comset.map_JSON_file").trim();
+			String datasetFile = prop.getProperty("comset.dataset_file").trim();
+			String boundingPolygonKMLFile = prop.getProperty("comset.bounding_polygon_KML_file").trim();
+			double speedReduction = Double.parseDouble(prop.getProperty("comset.speed_reduction").trim());
+
+			int pathTableThreads = Runtime.getRuntime().availableProcessors();
+			String pathTableThreadsArg = prop.getProperty("comset.pathtable_threads");
+			if (pathTableThreadsArg != null) {
+				pathTableThreads = Integer.parseInt(pathTableThreadsArg.trim());
+			}
+
+			int resourceThreads = Runtime.getRuntime().availableProcessors();
+			String resourceThreadsArg = prop.getProperty("comset.resource_threads");
+			if (resourceThreadsArg != null) {
+				resourceThreads = Integer.parseInt(resourceThreadsArg.trim());
+			}
+
+			String cacheDirectory = prop.getProperty("comset.cache_directory");
+			if (cacheDirectory != null) {
+				cacheDirectory = cacheDirectory.trim();
+			}
+
+			if (ResourceDataset.isDataset(datasetFile)) {
+				System.out.println(datasetFile + " is already a resource dataset file.");
+				System.exit(1);
+			}
+			String outputFile = args.length > 0 ? args[0] : datasetFile.replaceFirst("(\\.csv)?$", ".bin");
+
+			LogManager.getLogManager().reset();
+
+			// The trip times of the resources need the path table.
+			CityMap map = Simulator.createMap(mapJSONFile, boundingPolygonKMLFile, speedReduction, pathTableThreads, cacheDirectory, false);
+			System.out.println("Loading and map-matching resources...");
+			List<MatchedResource> resources = new MapWithData(map, datasetFile, 0).matchResources(resourceThreads);
+
+			ResourceDataset.write(outputFile, map, resources);
+			System.out.println("Wrote " + resources.size() + " resources to " + outputFile);
+
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package DataParsing;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+
+import COMSETsystem.Link;
+
+/**
+ * A balanced kd-tree over the bounding boxes of 2D line segments (i.e., links) to find the link
+ * nearest to a point, used for map matching.
+ *
+ * Unlike KdTree, whose shape depends on the order in which the links are inserted, the tree is
+ * bulk-loaded from all the links at once: the links are split at the median of the centers of
+ * their bounding boxes, along the axis on which the centers spread the most, until at most
+ * LEAF_SIZE links are left. Every node keeps the bounding box of its links, which may overlap
+ * the box of its sibling. The tree is thus balanced whatever the order of the links and however
+ * long and overlapping they are, and is built in O(n log n) time.
+ *
+ * The nodes are stored in arrays in depth-first order, so that the left child of a node is the
+ * next node, and nearest searches the tree with an explicit stack rather than recursively. The
+ * distance to the nearest link found so far is kept along with it rather than recomputed.
+ */
+public class BalancedKdTree {
+
+	// The maximum number of links in a leaf
+	private static final int LEAF_SIZE = 8;
+
+	// The links, ordered so that the links of every node are consecutive
+	private final Link[] links;
+
+	// The links of node i are links[start[i]] to links[end[i] - 1].
+	private final int[] start;
+	private final int[] end;
+
+	// The index of the right child of node i; -1 if node i is a leaf
+	private final int[] right;
+
+	// The bounding box of the links of node i is minX[i], minY[i], maxX[i], maxY[i].
+	private final double[] minX;
+	private final double[] minY;
+	private final double[] maxX;
+	private final double[] maxY;
+
+	// The number of nodes
+	private int nodes = 0;
+
+	// The number of levels of the tree
+	private int depth = 0;
+
+	// The stack of nearest, per thread. Every level pushes at most two nodes and pops one.
+	private final ThreadLocal<int[]> stacks = ThreadLocal.withInitial(() -> new int[depth + 1]);
+
+	/**
+	 * Build the tree.
+	 *
+	 * @param links the links to index
+	 */
+	public BalancedKdTree(List<Link> links) {
+		int n = links.size();
+		this.links = links.toArray(new Link[n]);
+		// A node is split only if it has more than LEAF_SIZE links, so every leaf has at least
+		// LEAF_SIZE / 2 links (but the root).
+		int maxNodes = 2 * (n / (LEAF_SIZE / 2) + 1);
+		start = new int[maxNodes];
+		end = new int[maxNodes];
+		right = new int[maxNodes];
+		minX = new double[maxNodes];
+		minY = new double[maxNodes];
+		maxX = new double[maxNodes];
+		maxY = new double[maxNodes];
+
+		if (n > 0) {
+			double[] centerX = new double[n];
+			double[] centerY = new double[n];
+			for (int i = 0; i < n; i++) {
+				centerX[i] = (this.links[i].minX + this.links[i].maxX) / 2;
+				centerY[i] = (this.links[i].minY + this.links[i].maxY) / 2;
+			}
+			build(0, n, 1, centerX, centerY);
+		}
+	}
+
+	/**
+	 * @return the number of links in the tree
+	 */
+	public int size() {
+		return links.length;
+	}
+
+	/**
+	 * @return true if the tree has no link
+	 */
+	public boolean isEmpty() {
+		return links.length == 0;
+	}
+
+	/**
+	 * Build the subtree of links[from] to links[to - 1].
+	 *
+	 * @return the index of the root of the subtree
+	 */
+	private int build(int from, int to, int level, double[] centerX, double[] centerY) {
+		int node = nodes++;
+		depth = Math.max(depth, level);
+		start[node] = from;
+		end[node] = to;
+		minX[node] = Double.POSITIVE_INFINITY;
+		minY[node] = Double.POSITIVE_INFINITY;
+		maxX[node] = Double.NEGATIVE_INFINITY;
+		maxY[node] = Double.NEGATIVE_INFINITY;
+		double minCenterX = Double.POSITIVE_INFINITY;
+		double minCenterY = Double.POSITIVE_INFINITY;
+		double maxCenterX = Double.NEGATIVE_INFINITY;
+		double maxCenterY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			Link link = links[i];
+			minX[node] = Math.min(minX[node], link.minX);
+			minY[node] = Math.min(minY[node], link.minY);
+			maxX[node] = Math.max(maxX[node], link.maxX);
+			maxY[node] = Math.max(maxY[node], link.maxY);
+			minCenterX = Math.min(minCenterX, centerX[i]);
+			minCenterY = Math.min(minCenterY, centerY[i]);
+			maxCenterX = Math.max(maxCenterX, centerX[i]);
+			maxCenterY = Math.max(maxCenterY, centerY[i]);
+		}
+
+		if (to - from <= LEAF_SIZE) {
+			right[node] = -1;
+			return node;
+		}
+
+		// Split at the median along the axis on which the centers spread the most.
+		int median = (from + to) >>> 1;
+		if (maxCenterX - minCenterX >= maxCenterY - minCenterY) {
+			select(from, to, median, centerX, centerY);
+		} else {
+			select(from, to, median, centerY, centerX);
+		}
+		build(from, median, level + 1, centerX, centerY);
+		right[node] = build(median, to, level + 1, centerX, centerY);
+		return node;
+	}
+
+	/**
+	 * Reorder links[from] to links[to - 1] so that the link at k has the k-th smallest key, the
+	 * links before it have no larger keys and the links after it no smaller keys (quickselect).
+	 * The keys and the other coordinates of the centers are reordered along with the links.
+	 */
+	private void select(int from, int to, int k, double[] keys, double[] others) {
+		int lo = from;
+		int hi = to - 1;
+		while (lo < hi) {
+			// median of three as the pivot
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid] < keys[lo]) {
+				swap(mid, lo, keys, others);
+			}
+			if (keys[hi] < keys[lo]) {
+				swap(hi, lo, keys, others);
+			}
+			if (keys[hi] < keys[mid]) {
+				swap(hi, mid, keys, others);
+			}
+			double pivot = keys[mid];
+
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i, j, keys, others);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				hi = j;
+			} else if (k >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(int i, int j, double[] keys, double[] others) {
+		Link link = links[i];
+		links[i] = links[j];
+		links[j] = link;
+		double key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		double other = others[i];
+		others[i] = others[j];
+		others[j] = other;
+	}
+
+	/**
+	 * A nearest link to point p; null if the tree is empty. Of several links at the same
+	 * distance, the one with the smallest id is returned.
+	 *
+	 * @param p the point from which to search for a link
+	 * @return the nearest link to the given point
+	 * @throws NullPointerException if {@code p} is {@code null}
+	 */
+	public Link nearest(Point2D p) {
+		if (p == null) throw new java.lang.NullPointerException(
+				"called nearest() with a null Point2D");
+		return nearest(p.getX(), p.getY());
+	}
+
+	/**
+	 * A nearest link to point (x, y); null if the tree is empty. Of several links at the same
+	 * distance, the one with the smallest id is returned. Nothing is allocated: the search stack
+	 * is kept per thread, since map matching queries the tree from several threads.
+	 *
+	 * @param x the x-coordinate of the point from which to search for a link
+	 * @param y the y-coordinate of the point from which to search for a link
+	 * @return the nearest link to the given point
+	 */
+	public Link nearest(double x, double y) {
+		if (isEmpty()) return null;
+
+		Link champion = null;
+		double championDistanceSq = Double.POSITIVE_INFINITY;
+		int[] stack = stacks.get();
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (distanceSqToBox(node, x, y) > championDistanceSq) {
+				continue;
+			}
+			if (right[node] < 0) {
+				for (int i = start[node]; i < end[node]; i++) {
+					Link link = links[i];
+					double distanceSq = link.distanceSq(x, y);
+					if (distanceSq < championDistanceSq || (distanceSq == championDistanceSq && link.id < champion.id)) {
+						champion = link;
+						championDistanceSq = distanceSq;
+					}
+				}
+				continue;
+			}
+			// Visit the child whose box is closer first; it is pushed last.
+			int left = node + 1;
+			int rightChild = right[node];
+			if (distanceSqToBox(left, x, y) <= distanceSqToBox(rightChild, x, y)) {
+				stack[top++] = rightChild;
+				stack[top++] = left;
+			} else {
+				stack[top++] = left;
+				stack[top++] = rightChild;
+			}
+		}
+		return champion;
+	}
+
+	/**
+	 * The squared distance from point (x, y) to the bounding box of a node; 0 if the point is inside.
+	 */
+	private double distanceSqToBox(int node, double x, double y) {
+		double dx = Math.max(0, Math.max(minX[node] - x, x - maxX[node]));
+		double dy = Math.max(0, Math.max(minY[node] - y, y - maxY[node]));
+		return dx * dx + dy * dy;
+	}
+}
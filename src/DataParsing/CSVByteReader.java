@@ -0,0 +1,278 @@
+package DataParsing;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * The CSVByteReader reads a CSV file row by row at the byte level. A row is split into fields
+ * in place in the read buffer, and the fields are parsed straight from the bytes, without a
+ * String per field. Rows may end with "\n" or "\r\n". Fields are not quoted.
+ *
+ * Timestamps in the fixed format yyyy-MM-dd HH:mm:ss are converted to the Linux epoch with the
+ * offset of the hour looked up once per hour rather than once per row. Decimal numbers whose
+ * digits fit in 53 bits and with at most 22 decimals, which is what the TLC data has, are
+ * converted with a single correctly rounded division. Anything else falls back to the java.time and
+ * Double.parseDouble parsers, so that the results are the same as theirs in every case.
+ */
+public class CSVByteReader implements Closeable {
+
+	// Powers of ten that are exact as doubles
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	// The largest mantissa that is exact as a double
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private final InputStream in;
+
+	// The read buffer; buf[pos, limit) has not been split into rows yet
+	private byte[] buf = new byte[1 << 16];
+	private int pos = 0;
+	private int limit = 0;
+	private boolean eof = false;
+
+	// The fields of the current row as ranges of buf
+	private int[] fieldStart = new int[32];
+	private int[] fieldEnd = new int[32];
+	private int fieldCount = 0;
+
+	// The local hour and the zone of the last timestamp, the epoch of the start of that hour and
+	// whether the offset is the same for the whole hour
+	private long cachedHour = -1;
+	private ZoneId cachedZone = null;
+	private long cachedHourEpoch;
+	private boolean cachedHourUniform;
+
+	/**
+	 * Constructor of CSVByteReader.
+	 *
+	 * @param path full path to the CSV file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public CSVByteReader(String path) throws IOException {
+		this(new FileInputStream(path));
+	}
+
+	/**
+	 * Constructor of CSVByteReader.
+	 *
+	 * @param in the CSV data, read in large blocks so that it need not be buffered
+	 */
+	public CSVByteReader(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Read the next row and split it into fields.
+	 *
+	 * @return the number of fields of the row; -1 at the end of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public int nextRow() throws IOException {
+		while (true) {
+			int eol = pos;
+			while (eol < limit && buf[eol] != '\n') {
+				eol++;
+			}
+			if (eol < limit) {
+				split(pos, eol);
+				pos = eol + 1;
+				return fieldCount;
+			}
+			if (eof) {
+				if (pos >= limit) {
+					return -1;
+				}
+				// the last row has no line break
+				split(pos, limit);
+				pos = limit;
+				return fieldCount;
+			}
+			fill();
+		}
+	}
+
+	/**
+	 * @return the number of fields of the current row
+	 */
+	public int fieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * @return a field of the current row as a String
+	 */
+	public String field(int field) {
+		return new String(buf, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Parse a field of the current row as a double, with the same result as Double.parseDouble.
+	 *
+	 * @throws NumberFormatException if the field is not a number
+	 */
+	public double parseDouble(int field) {
+		int i = fieldStart[field];
+		int end = fieldEnd[field];
+		boolean negative = false;
+		if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = -1;
+		for (; i < end; i++) {
+			byte b = buf[i];
+			if (b >= '0' && b <= '9') {
+				mantissa = mantissa * 10 + (b - '0');
+				if (mantissa > MAX_EXACT_MANTISSA) {
+					return Double.parseDouble(field(field));
+				}
+				digits++;
+				if (decimals >= 0) {
+					decimals++;
+				}
+			} else if (b == '.' && decimals < 0) {
+				decimals = 0;
+			} else {
+				return Double.parseDouble(field(field));
+			}
+		}
+		if (digits == 0 || decimals >= POWERS_OF_TEN.length) {
+			return Double.parseDouble(field(field));
+		}
+		// Both operands are exact, so the quotient is correctly rounded, as Double.parseDouble is.
+		double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parse a field of the current row as a local date and time in the format yyyy-MM-dd HH:mm:ss
+	 * and convert it to the Linux epoch, with the same result as converting it through
+	 * LocalDateTime.parse and ZonedDateTime.of.
+	 *
+	 * @param zoneId the time zone of the local date and time
+	 * @throws java.time.format.DateTimeParseException if the field is not a date and time
+	 */
+	public long parseDateTime(int field, ZoneId zoneId) {
+		int i = fieldStart[field];
+		if (fieldEnd[field] - i != 19 || buf[i + 4] != '-' || buf[i + 7] != '-' || buf[i + 10] != ' '
+				|| buf[i + 13] != ':' || buf[i + 16] != ':') {
+			return ZonedDateTime.of(LocalDateTime.parse(field(field), DATE_TIME), zoneId).toEpochSecond();
+		}
+		int year = digits(i, 4);
+		int month = digits(i + 5, 2);
+		int day = digits(i + 8, 2);
+		int hour = digits(i + 11, 2);
+		int minute = digits(i + 14, 2);
+		int second = digits(i + 17, 2);
+		if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0 || minute > 59 || second > 59) {
+			return ZonedDateTime.of(LocalDateTime.parse(field(field), DATE_TIME), zoneId).toEpochSecond();
+		}
+		// When the offset does not change within the hour, a time is the start of its hour plus
+		// the minutes and seconds, with the start of an hour in a gap moved forward as
+		// ZonedDateTime.of does. Offsets usually change on the hour.
+		long localHour = ((year * 100L + month) * 100 + day) * 100 + hour;
+		if (localHour != cachedHour || zoneId != cachedZone) {
+			try {
+				ZonedDateTime hourStart = ZonedDateTime.of(year, month, day, hour, 0, 0, 0, zoneId);
+				cachedHourEpoch = hourStart.toEpochSecond();
+				cachedHourUniform = hourStart.getMinute() == 0
+						&& hourStart.getOffset().equals(zoneId.getRules().getOffset(Instant.ofEpochSecond(cachedHourEpoch + 3599)));
+			} catch (DateTimeException e) {
+				return ZonedDateTime.of(LocalDateTime.parse(field(field), DATE_TIME), zoneId).toEpochSecond();
+			}
+			cachedHour = localHour;
+			cachedZone = zoneId;
+		}
+		if (!cachedHourUniform) {
+			return ZonedDateTime.of(year, month, day, hour, minute, second, 0, zoneId).toEpochSecond();
+		}
+		return cachedHourEpoch + minute * 60 + second;
+	}
+
+	/**
+	 * Close the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/*
+	 * Parse count digits starting at buf[i]; -1 if they are not all digits.
+	 */
+	private int digits(int i, int count) {
+		int value = 0;
+		for (int end = i + count; i < end; i++) {
+			int digit = buf[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	/*
+	 * Split buf[start, end) into fields, leaving out a trailing carriage return.
+	 */
+	private void split(int start, int end) {
+		if (end > start && buf[end - 1] == '\r') {
+			end--;
+		}
+		fieldCount = 0;
+		int fieldBegin = start;
+		for (int i = start; i <= end; i++) {
+			if (i == end || buf[i] == ',') {
+				if (fieldCount == fieldStart.length) {
+					fieldStart = Arrays.copyOf(fieldStart, 2 * fieldCount);
+					fieldEnd = Arrays.copyOf(fieldEnd, 2 * fieldCount);
+				}
+				fieldStart[fieldCount] = fieldBegin;
+				fieldEnd[fieldCount] = i;
+				fieldCount++;
+				fieldBegin = i + 1;
+			}
+		}
+	}
+
+	/*
+	 * Move the bytes not split yet to the start of the buffer, growing it if a row does not fit,
+	 * and read more.
+	 */
+	private void fill() throws IOException {
+		if (pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, limit - pos);
+			limit -= pos;
+			pos = 0;
+		}
+		if (limit == buf.length) {
+			buf = Arrays.copyOf(buf, 2 * buf.length);
+		}
+		int n = in.read(buf, limit, buf.length - limit);
+		if (n < 0) {
+			eof = true;
+		} else {
+			limit += n;
+		}
+	}
+}
@@ -1,8 +1,15 @@
 package DataParsing;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.function.Consumer;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -66,41 +73,268 @@ public class CSVNewYorkParser {
 	 * @return ArrayList<Resource>
 	 */
 	public ArrayList<Resource> parse() {
+		Iterator<Resource> iterator = stream();
+		while (iterator.hasNext()) {
+			resources.add(iterator.next());
+		}
+		return resources;
+	}
+
+	/**
+	 * Parse the csv file lazily, one row at a time, so that the resources need not be held in
+	 * memory all at once. The rows are parsed at the byte level by a CSVByteReader.
+	 *
+	 * @return an iterator over the resources in the order of the file
+	 */
+	public Iterator<Resource> stream() {
+		return new ResourceIterator() {
+
+			private CSVByteReader reader = open();
+
+			@Override
+			Resource read() {
+				if (reader == null) {
+					return null;
+				}
+				try {
+					Resource resource = readRow(reader);
+					if (resource != null) {
+						return resource;
+					}
+				} catch (Exception e) {
 
-		try {
-			Scanner sc = new Scanner(new File(path));   //scanner will scan the file specified by path
-			sc.useDelimiter(",|\n");    //scanner will skip over "," and "\n" found in file
-			sc.nextLine(); // skip the header
-
-			//while there are tokens in the file the scanner will scan the input
-			//each line in input file will contain 4 tokens for the scanner and will be in the format : latitude longitude time type
-			//per line of input file we will create a new TimestampAgRe object
-			// and save the 4 tokens of each line in the corresponding field of the TimestampAgRe object
-			while (sc.hasNext()) {
-				sc.next();// skip first VendorID
-				long time = dateConversion(sc.next());
-				sc.next();// skip these fields
-				sc.next();
-				sc.next();
-				double pickupLon = Double.parseDouble(sc.next());
-				double pickupLat = Double.parseDouble(sc.next());
-				sc.next();// skip these fields
-				sc.next();
-				double dropoffLon = Double.parseDouble(sc.next());
-				double dropoffLat = Double.parseDouble(sc.next());
-				sc.nextLine(); //skip rest of fileds in this line
-				// Only keep the resources such that both pickup location and dropoff location are within the bounding polygon.
-				if (!(MapCreator.insidePolygon(pickupLon, pickupLat) && MapCreator.insidePolygon(dropoffLon, dropoffLat))) {
-					continue;
+					e.printStackTrace();
+				}
+				try {
+					reader.close();
+				} catch (IOException e) {
+					e.printStackTrace();
 				}
-				resources.add(new Resource(pickupLat, pickupLon, dropoffLat, dropoffLon, time)); //create new resource with the above fields
+				reader = null;
+				return null;
 			}
-			sc.close();
-		} catch (Exception e) {
 
+			/*
+			 * Open the csv file and skip the header; null if the file cannot be read.
+			 */
+			private CSVByteReader open() {
+				try {
+					CSVByteReader reader = new CSVByteReader(path);
+					reader.nextRow(); // skip the header
+					return reader;
+				} catch (IOException e) {
+
+					e.printStackTrace();
+					return null;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Split the csv file into chunks of whole rows of about the same size, to be parsed
+	 * independently with parse(long, long, Consumer).
+	 *
+	 * @param chunks the number of chunks
+	 * @return chunks + 1 increasing offsets in the file; chunk i is from offset i to offset i + 1
+	 * @throws IOException if the file cannot be read
+	 */
+	public long[] chunkOffsets(int chunks) throws IOException {
+		long[] offsets = new long[chunks + 1];
+		try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+			long length = file.length();
+			byte[] buffer = new byte[4096];
+			offsets[chunks] = length;
+			for (int i = 1; i < chunks; i++) {
+				// A chunk starts right after the first line break at or after its nominal start.
+				long offset = Math.max(offsets[i - 1], length / chunks * i - 1);
+				boolean found = false;
+				while (!found && offset < length) {
+					file.seek(offset);
+					int n = file.read(buffer);
+					for (int j = 0; j < n; j++) {
+						if (buffer[j] == '\n') {
+							offset += j + 1;
+							found = true;
+							break;
+						}
+					}
+					if (!found) {
+						offset += n;
+					}
+				}
+				offsets[i] = Math.min(offset, length);
+			}
+		}
+		return offsets;
+	}
+
+	/**
+	 * Parse the rows of a chunk of the csv file (see chunkOffsets). The header is skipped if the
+	 * chunk starts at the beginning of the file.
+	 *
+	 * @param from the offset of the first row of the chunk
+	 * @param to the offset right after the last row of the chunk
+	 * @param consumer receives the resources of the chunk in the order of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public void parse(long from, long to, Consumer<Resource> consumer) throws IOException {
+		byte[] chunk = new byte[(int) (to - from)];
+		try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+			file.seek(from);
+			file.readFully(chunk);
+		}
+		CSVByteReader reader = new CSVByteReader(new ByteArrayInputStream(chunk));
+		if (from == 0) {
+			reader.nextRow(); // skip the header
+		}
+		Resource resource;
+		while ((resource = readRow(reader)) != null) {
+			consumer.accept(resource);
+		}
+	}
+
+	/*
+	 * Read rows until a resource within the bounding polygon is found; null at the end of the file.
+	 */
+	private Resource readRow(CSVByteReader reader) throws IOException {
+		int fields;
+		while ((fields = reader.nextRow()) >= 0) {
+			if (fields < 11) {
+				continue; // an empty line
+			}
+			long time = reader.parseDateTime(1, zoneId);
+			double pickupLon = reader.parseDouble(5);
+			double pickupLat = reader.parseDouble(6);
+			double dropoffLon = reader.parseDouble(9);
+			double dropoffLat = reader.parseDouble(10);
+			// Only keep the resources such that both pickup location and dropoff location are within the bounding polygon.
+			if (!(MapCreator.insidePolygon(pickupLon, pickupLat) && MapCreator.insidePolygon(dropoffLon, dropoffLat))) {
+				continue;
+			}
+			return new Resource(pickupLat, pickupLon, dropoffLat, dropoffLon, time);
+		}
+		return null;
+	}
+
+	/**
+	 * Parse the csv file lazily with java.util.Scanner, as the parser used to. Kept as the
+	 * reference for the byte-level parser of stream; see Benchmarks.CSVParserBenchmark.
+	 *
+	 * @return an iterator over the resources in the order of the file
+	 */
+	public Iterator<Resource> scannerStream() {
+		return new ResourceIterator() {
+
+			private Scanner sc = open();
+
+			@Override
+			Resource read() {
+				if (sc == null) {
+					return null;
+				}
+				try {
+					//while there are tokens in the file the scanner will scan the input
+					//each line in input file will contain 4 tokens for the scanner and will be in the format : latitude longitude time type
+					//per line of input file we will create a new TimestampAgRe object
+					// and save the 4 tokens of each line in the corresponding field of the TimestampAgRe object
+					while (sc.hasNext()) {
+						sc.next();// skip first VendorID
+						long time = dateConversion(sc.next());
+						sc.next();// skip these fields
+						sc.next();
+						sc.next();
+						double pickupLon = Double.parseDouble(sc.next());
+						double pickupLat = Double.parseDouble(sc.next());
+						sc.next();// skip these fields
+						sc.next();
+						double dropoffLon = Double.parseDouble(sc.next());
+						double dropoffLat = Double.parseDouble(sc.next());
+						sc.nextLine(); //skip rest of fileds in this line
+						// Only keep the resources such that both pickup location and dropoff location are within the bounding polygon.
+						if (!(MapCreator.insidePolygon(pickupLon, pickupLat) && MapCreator.insidePolygon(dropoffLon, dropoffLat))) {
+							continue;
+						}
+						return new Resource(pickupLat, pickupLon, dropoffLat, dropoffLon, time); //create new resource with the above fields
+					}
+				} catch (Exception e) {
+
+					e.printStackTrace();
+				}
+				sc.close();
+				sc = null;
+				return null;
+			}
+
+			/*
+			 * Open the csv file and skip the header; null if the file cannot be read.
+			 */
+			private Scanner open() {
+				try {
+					Scanner sc = new Scanner(new File(path));   //scanner will scan the file specified by path
+					sc.useDelimiter(",|\n");    //scanner will skip over "," and "\n" found in file
+					sc.nextLine(); // skip the header
+					return sc;
+				} catch (Exception e) {
+
+					e.printStackTrace();
+					return null;
+				}
+			}
+		};
+	}
+
+	/**
+	 * An iterator over the resources read by read.
+	 */
+	private abstract static class ResourceIterator implements Iterator<Resource> {
+
+		// The next resource to return; null if it has not been read yet
+		private Resource next = null;
+
+		/*
+		 * Read rows until a resource within the bounding polygon is found; null at the end of the file.
+		 */
+		abstract Resource read();
+
+		@Override
+		public boolean hasNext() {
+			if (next == null) {
+				next = read();
+			}
+			return next != null;
+		}
+
+		@Override
+		public Resource next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Resource resource = next;
+			next = null;
+			return resource;
+		}
+	}
+
+	/**
+	 * Read the time of the last row of the csv file, without parsing the rest of the file. For a
+	 * file sorted by time this is the time of the latest resource.
+	 *
+	 * @return the time of the last row; -1 if it cannot be read
+	 */
+	public long lastRecordTime() {
+		try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+			long length = file.length();
+			byte[] tail = new byte[(int) Math.min(length, 4096)];
+			file.seek(length - tail.length);
+			file.readFully(tail);
+			String[] lines = new String(tail, StandardCharsets.US_ASCII).trim().split("\r?\n");
+			String[] fields = lines[lines.length - 1].split(",");
+			return dateConversion(fields[1]);
+		} catch (Exception e) {
 			e.printStackTrace();
+			return -1;
 		}
-		return resources;
 	}
 
 }
@@ -41,12 +41,30 @@ public class GeoProjector {
 	 * @return projected 2D point 
 	 */		
 	public double[] fromLatLon(double lat, double lon) {
-		double x = (lon - ref_lon) * metersPerLonDegree;
-		double y = (lat - ref_lat) * metersPerLatDegree;
+		double x = toX(lon);
+		double y = toY(lat);
 		double[] xy = {x, y};
 		return xy;
 	}
 
+	/**
+	 * Project a longitude to the x-coordinate in 2D space, without allocating an array like fromLatLon.
+	 * @param lon longitude
+	 * @return x-coordinate of the projected 2D point
+	 */
+	public double toX(double lon) {
+		return (lon - ref_lon) * metersPerLonDegree;
+	}
+
+	/**
+	 * Project a latitude to the y-coordinate in 2D space, without allocating an array like fromLatLon.
+	 * @param lat latitude
+	 * @return y-coordinate of the projected 2D point
+	 */
+	public double toY(double lat) {
+		return (lat - ref_lat) * metersPerLatDegree;
+	}
+
 	/**
 	 * Project a lat,lon location to 2D space
 	 * @param lat latitude 
@@ -60,6 +78,20 @@ public class GeoProjector {
 		return latLon;
 	}
 
+	/**
+	 * @return the latitude of the reference location
+	 */
+	public double referenceLatitude() {
+		return ref_lat;
+	}
+
+	/**
+	 * @return the longitude of the reference location
+	 */
+	public double referenceLongitude() {
+		return ref_lon;
+	}
+
 	/**
 	 * Compute great-circle distance between two locations on earth modeled as a sphere.  
 	 * @param lat1 latitude of the first location
@@ -8,6 +8,7 @@ import COMSETsystem.*;
 /**
  * Modified from Michael <GrubenM@GMail.com>'s code (https://github.com/mgruben/Kd-Trees) to index 
  * 2D line segments (i.e., links) instead of 2D points. 
+ * CityMap now uses BalancedKdTree; this tree is kept as the baseline of Benchmarks.NearestLinkBenchmark.
  * @author Bo <boxu08@gmail.com>
  *
  */
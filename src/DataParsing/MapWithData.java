@@ -3,20 +3,32 @@ package DataParsing;
 import COMSETsystem.*;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.PriorityQueue;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.jmx.Agent;
 
 /**
  * The MapWithData class is responsible for loading a resource dataset file,
  * map matching resources, and create a list of resource events.  
+ * The resource file is either a csv file or a file of resources already matched to the map
+ * (see ResourceDataset).
  */
 public class MapWithData {
 
+	// The size of the chunks of the resource file that are matched in parallel
+	private static final long CHUNK_BYTES = 16L << 20;
+
 	// Map without any data added to it
 	public CityMap map;     
 
@@ -24,7 +36,7 @@ public class MapWithData {
 	private String resourceFile;    
 
 	// Priority queue of events
-	public PriorityQueue<Event> events;
+	public EventScheduler events;
 
 	// The earliest resource introduction time. The time is used to determine the time at which
 	// agents are to be deployed. The agents are to be deployed at time earliestResourceTime - 1.
@@ -47,10 +59,21 @@ public class MapWithData {
 	 * @param agentPlacementRandomSeed
 	 */
 	public MapWithData(CityMap map, String resourceFile, long agentPlacementRandomSeed) {
+		this(map, resourceFile, agentPlacementRandomSeed, new EventQueue());
+	}
+
+	/**
+	 * Constructor of MapWithData
+	 * @param map reference to the map
+	 * @param resourceFile full path to the resource file
+	 * @param agentPlacementRandomSeed
+	 * @param events an empty queue to which the events are to be added
+	 */
+	public MapWithData(CityMap map, String resourceFile, long agentPlacementRandomSeed, EventScheduler events) {
 		this.map = map;
 		this.resourceFile = resourceFile;
 		this.agentPlacementRandomSeed = agentPlacementRandomSeed;
-		events = new PriorityQueue<>();
+		this.events = events;
 		zoneId = map.computeZoneId();
 	}
 
@@ -65,30 +88,187 @@ public class MapWithData {
 	 * @return long the latest resource time
 	 */
 	public long createMapWithData(Simulator simulator) {
- 
+		return createResourceEvents(simulator, matchResources());
+	}
+
+	/**
+	 * Loads the resources from the resource file and matches them to the map.
+	 *
+	 * @return the matched resources in the order of the resource file
+	 */
+	public ArrayList<MatchedResource> matchResources() {
+		if (ResourceDataset.isDataset(resourceFile)) {
+			return loadDataset();
+		}
 		CSVNewYorkParser parser = new CSVNewYorkParser(resourceFile, zoneId);
 		ArrayList<Resource> resourcesParsed = parser.parse();
+		ArrayList<MatchedResource> resources = new ArrayList<MatchedResource>(resourcesParsed.size());
 		try {
-            for (Resource resource : resourcesParsed) {
-				// map matching
-				LocationOnRoad pickupMatch = mapMatch(resource.getPickupLon(), resource.getPickupLat());
-				LocationOnRoad dropoffMatch = mapMatch(resource.getDropoffLon(), resource.getDropoffLat());
+			for (Resource resource : resourcesParsed) {
+				resources.add(match(resource));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return resources;
+	}
 
-				ResourceEvent ev = new ResourceEvent(pickupMatch, dropoffMatch, resource.getTime(), simulator);
-				events.add(ev);
+	/**
+	 * Loads the resources from the resource file and matches them to the map in several threads.
+	 * The file is split into chunks of whole rows, which are parsed and matched independently,
+	 * and the chunks are put back together in the order of the file. The result is the same as
+	 * that of matchResources().
+	 *
+	 * @param threads the number of threads
+	 * @return the matched resources in the order of the resource file
+	 */
+	public ArrayList<MatchedResource> matchResources(int threads) {
+		if (threads <= 1 || ResourceDataset.isDataset(resourceFile)) {
+			return matchResources();
+		}
+		CSVNewYorkParser parser = new CSVNewYorkParser(resourceFile, zoneId);
+		long[] offsets;
+		try {
+			long length = new File(resourceFile).length();
+			offsets = parser.chunkOffsets((int) Math.max(4L * threads, length / CHUNK_BYTES + 1));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return new ArrayList<MatchedResource>();
+		}
 
-				//  track earliestResourceTime and latestResourceTime
-				if (resource.getTime() < earliestResourceTime) {
-					earliestResourceTime = resource.getTime();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<MatchedChunk>> chunks = new ArrayList<>();
+		for (int i = 0; i + 1 < offsets.length; i++) {
+			long from = offsets[i];
+			long to = offsets[i + 1];
+			chunks.add(pool.submit(() -> {
+				MatchedChunk chunk = new MatchedChunk();
+				try {
+					parser.parse(from, to, resource -> chunk.resources.add(match(resource)));
+					chunk.complete = true;
+				} catch (Exception e) {
+					e.printStackTrace();
 				}
-				if (resource.getTime() + simulator.ResourceMaximumLifeTime + ev.tripTime > latestResourceTime) {
-					latestResourceTime = resource.getTime() + simulator.ResourceMaximumLifeTime + ev.tripTime;
+				return chunk;
+			}));
+		}
+		pool.shutdown();
+
+		// Like matchResources(), stop at the first row that cannot be parsed or matched.
+		ArrayList<MatchedResource> resources = new ArrayList<MatchedResource>();
+		try {
+			for (Future<MatchedChunk> future : chunks) {
+				MatchedChunk chunk = future.get();
+				resources.addAll(chunk.resources);
+				if (!chunk.complete) {
+					break;
 				}
 			}
-		} catch (Exception e) {
+		} catch (InterruptedException | ExecutionException e) {
 			e.printStackTrace();
+		} finally {
+			pool.shutdownNow();
+		}
+		return resources;
+	}
+
+	/**
+	 * Loads the resources from a resource dataset file, which holds them already matched to the map.
+	 */
+	private ArrayList<MatchedResource> loadDataset() {
+		try {
+			return new ResourceDataset(resourceFile, map).resources();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return new ArrayList<MatchedResource>();
+		}
+	}
+
+	/**
+	 * The resources of a chunk of the resource file and whether the whole chunk was matched.
+	 */
+	private static class MatchedChunk {
+		final ArrayList<MatchedResource> resources = new ArrayList<MatchedResource>();
+		boolean complete = false;
+	}
+
+	/**
+	 * Match a resource to the map and compute its trip time.
+	 */
+	private MatchedResource match(Resource resource) {
+		// map matching
+		LocationOnRoad pickupMatch = mapMatch(resource.getPickupLon(), resource.getPickupLat());
+		LocationOnRoad dropoffMatch = mapMatch(resource.getDropoffLon(), resource.getDropoffLat());
+		long tripTime = map.travelTimeBetween(pickupMatch, dropoffMatch);
+		return new MatchedResource(pickupMatch, dropoffMatch, resource.getTime(), tripTime);
+	}
+
+	/**
+	 * Loads the resources from the resource file and matches them to the map lazily, one at a
+	 * time, so that the resources need not be held in memory all at once.
+	 *
+	 * @return an iterator over the matched resources in the order of the resource file
+	 */
+	public Iterator<MatchedResource> streamResources() {
+		if (ResourceDataset.isDataset(resourceFile)) {
+			try {
+				return new ResourceDataset(resourceFile, map).iterator();
+			} catch (IOException e) {
+				e.printStackTrace();
+				return new ArrayList<MatchedResource>().iterator();
+			}
+		}
+		Iterator<Resource> resources = new CSVNewYorkParser(resourceFile, zoneId).stream();
+		return new Iterator<MatchedResource>() {
+
+			@Override
+			public boolean hasNext() {
+				return resources.hasNext();
+			}
+
+			@Override
+			public MatchedResource next() {
+				return match(resources.next());
+			}
+		};
+	}
+
+	/**
+	 * @return the time of the last resource of a resource file sorted by time; -1 if it cannot be read
+	 */
+	public long lastResourceTime() {
+		if (ResourceDataset.isDataset(resourceFile)) {
+			try {
+				return new ResourceDataset(resourceFile, map).lastTime();
+			} catch (IOException e) {
+				e.printStackTrace();
+				return -1;
+			}
+		}
+		return new CSVNewYorkParser(resourceFile, zoneId).lastRecordTime();
+	}
+
+	/**
+	 * Creates a resource event for each matched resource and adds them to the events
+	 * priority queue.
+	 *
+	 * @param simulator Simulator object with whose methods resource events can be created.
+	 * @param resources the resources matched to the map of the simulator
+	 * @return long the latest resource time
+	 */
+	public long createResourceEvents(Simulator simulator, List<MatchedResource> resources) {
+		for (MatchedResource resource : resources) {
+			ResourceEvent ev = new ResourceEvent(resource.pickupLoc, resource.dropoffLoc, resource.time, resource.tripTime, simulator);
+			events.add(ev);
+
+			//  track earliestResourceTime and latestResourceTime
+			if (resource.time < earliestResourceTime) {
+				earliestResourceTime = resource.time;
+			}
+			if (resource.time + simulator.ResourceMaximumLifeTime + ev.tripTime > latestResourceTime) {
+				latestResourceTime = resource.time + simulator.ResourceMaximumLifeTime + ev.tripTime;
+			}
 		}
-	
 		return latestResourceTime;
 	}
 
@@ -99,13 +279,11 @@ public class MapWithData {
 	 * @return
 	 */
 	public LocationOnRoad mapMatch(double longitude, double latitude) {
+		// Only the returned location is allocated.
 		Link link = map.getNearestLink(longitude, latitude);
-		double xy[] = map.projector().fromLatLon(latitude, longitude);
-		double [] snapResult = snap(link.from.getX(), link.from.getY(), link.to.getX(), link.to.getY(), xy[0], xy[1]);
-		double distanceFromStartVertex = this.distance(snapResult[0], snapResult[1], link.from.getX(), link.from.getY());
-		long travelTimeFromStartVertex = Math.round(distanceFromStartVertex / link.length * link.travelTime);
-		long travelTimeFromStartIntersection = link.beginTime + travelTimeFromStartVertex;
-		return new LocationOnRoad(link.road, travelTimeFromStartIntersection);		
+		GeoProjector projector = map.projector();
+		long travelTimeFromStartIntersection = link.travelTimeFromStartIntersection(projector.toX(longitude), projector.toY(latitude));
+		return new LocationOnRoad(link.road, travelTimeFromStartIntersection);
 	}
 
 	/**
@@ -171,6 +349,7 @@ public class MapWithData {
 		ArrayList<BaseAgent> agents = new ArrayList<BaseAgent>();
 		long deployTime = earliestResourceTime - 1; 
 
+		ArrayList<AgentEvent> agentEvents = new ArrayList<AgentEvent>();
 		Random generator = new Random(agentPlacementRandomSeed);
 		for (int i = 0; i < simulator.totalAgents(); i++) {
 			Road road = map.roads().get(generator.nextInt(map.roads().size()));
@@ -181,8 +360,12 @@ public class MapWithData {
                 travelTimeFromStartIntersection = 0L;
             }
 			LocationOnRoad locationOnRoad = new LocationOnRoad(road, travelTimeFromStartIntersection);
-			AgentEvent ev = new AgentEvent(locationOnRoad, deployTime, simulator);
+			AgentEvent ev = new AgentEvent(locationOnRoad, deployTime, simulator, false);
 			events.add(ev);
+			agentEvents.add(ev);
+		}
+		simulator.getAgentFactory().createAgents(agentEvents);
+		for (AgentEvent ev : agentEvents) {
 			agents.add(ev.agent);
 		}
 		return agents;
@@ -192,7 +375,7 @@ public class MapWithData {
 	 * 
 	 * @return events
 	 */
-	public PriorityQueue<Event> getEvents() {
+	public EventScheduler getEvents() {
 		return events;
 	}
 
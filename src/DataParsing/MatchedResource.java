@@ -0,0 +1,31 @@
+package DataParsing;
+
+import COMSETsystem.LocationOnRoad;
+
+/**
+ * A resource of the dataset matched to the map: the pickup and dropoff locations on the map,
+ * the time at which the resource is introduced and the shortest travel time of the trip. Unlike
+ * a ResourceEvent, a MatchedResource does not belong to a simulator, so that the resources of a
+ * dataset may be loaded and matched once and simulated many times (see Sweep).
+ */
+public class MatchedResource {
+
+	// The pickup location on the map
+	public final LocationOnRoad pickupLoc;
+
+	// The dropoff location on the map
+	public final LocationOnRoad dropoffLoc;
+
+	// The time at which the resource is introduced
+	public final long time;
+
+	// The shortest travel time from pickupLoc to dropoffLoc
+	public final long tripTime;
+
+	public MatchedResource(LocationOnRoad pickupLoc, LocationOnRoad dropoffLoc, long time, long tripTime) {
+		this.pickupLoc = pickupLoc;
+		this.dropoffLoc = dropoffLoc;
+		this.time = time;
+		this.tripTime = tripTime;
+	}
+}
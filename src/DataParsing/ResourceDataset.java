@@ -0,0 +1,306 @@
+package DataParsing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import COMSETsystem.CityMap;
+import COMSETsystem.Link;
+import COMSETsystem.LocationOnRoad;
+import COMSETsystem.Road;
+
+/**
+ * The ResourceDataset class reads and writes a resource dataset that has already been parsed and
+ * matched to a map, so that replaying the same dataset does not parse the csv file and map-match
+ * every resource again. Such a file is created from a csv file by ConvertResources, and can be
+ * used as comset.dataset_file in place of the csv file (see MapWithData).
+ *
+ * The matched locations refer to the roads of one particular map, so the file records a hash of
+ * that map (see mapHash) and is only loaded on the same map. The file starts with a header of
+ * HEADER_BYTES bytes, all numbers little-endian:
+ *
+ *   int      magic number
+ *   int      format version
+ *   byte[32] hash of the map
+ *   int      number of resources
+ *
+ * followed by one column per field, each holding the values of all the resources in the order
+ * of the csv file:
+ *
+ *   long[]   time at which the resource is introduced
+ *   int[]    index of the pickup road in CityMap.roads()
+ *   int[]    travel time of the pickup location from the start intersection of its road
+ *   int[]    index of the dropoff road in CityMap.roads()
+ *   int[]    travel time of the dropoff location from the start intersection of its road
+ *   int[]    shortest travel time of the trip
+ *
+ * The columns are memory-mapped when the file is read, so that it loads at close to disk speed.
+ */
+public class ResourceDataset {
+
+	// "CMRD"
+	static final int MAGIC = 0x434D5244;
+
+	// Must be increased whenever the layout of the file changes.
+	static final int VERSION = 1;
+
+	static final int HEADER_BYTES = 64;
+
+	private static final int HASH_BYTES = 32;
+
+	// The map the resources are matched to
+	private final CityMap map;
+
+	// The number of resources
+	private final int size;
+
+	// The columns of the file; see the class comment
+	private final LongBuffer times;
+	private final IntBuffer pickupRoads;
+	private final IntBuffer pickupOffsets;
+	private final IntBuffer dropoffRoads;
+	private final IntBuffer dropoffOffsets;
+	private final IntBuffer tripTimes;
+
+	/**
+	 * Open a resource dataset file matched to a map.
+	 *
+	 * @param file the resource dataset file
+	 * @param map the map the resources were matched to when the file was written
+	 * @throws IOException if the file cannot be read, or was written for another map
+	 */
+	public ResourceDataset(String file, CityMap map) throws IOException {
+		this.map = map;
+		try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0);
+			header.flip();
+			if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+				throw new IOException(file + " is not a resource dataset file");
+			}
+			if (header.getInt() != VERSION) {
+				throw new IOException(file + " was written by another version of the simulator");
+			}
+			byte[] hash = new byte[HASH_BYTES];
+			header.get(hash);
+			if (!MessageDigest.isEqual(hash, mapHash(map))) {
+				throw new IOException(file + " was matched to another map; convert the csv file again");
+			}
+			size = header.getInt();
+			if (channel.size() != HEADER_BYTES + (long) size * (Long.BYTES + 5 * Integer.BYTES)) {
+				throw new IOException(file + " is truncated");
+			}
+			long offset = HEADER_BYTES;
+			times = map(channel, offset, Long.BYTES).asLongBuffer();
+			offset += (long) size * Long.BYTES;
+			pickupRoads = map(channel, offset, Integer.BYTES).asIntBuffer();
+			offset += (long) size * Integer.BYTES;
+			pickupOffsets = map(channel, offset, Integer.BYTES).asIntBuffer();
+			offset += (long) size * Integer.BYTES;
+			dropoffRoads = map(channel, offset, Integer.BYTES).asIntBuffer();
+			offset += (long) size * Integer.BYTES;
+			dropoffOffsets = map(channel, offset, Integer.BYTES).asIntBuffer();
+			offset += (long) size * Integer.BYTES;
+			tripTimes = map(channel, offset, Integer.BYTES).asIntBuffer();
+		}
+	}
+
+	/**
+	 * Memory-map a column of the file.
+	 */
+	private MappedByteBuffer map(FileChannel channel, long offset, int bytes) throws IOException {
+		MappedByteBuffer column = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) size * bytes);
+		column.order(ByteOrder.LITTLE_ENDIAN);
+		return column;
+	}
+
+	/**
+	 * @return the number of resources
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param i the index of a resource
+	 * @return the resource
+	 */
+	public MatchedResource get(int i) {
+		List<Road> roads = map.roads();
+		LocationOnRoad pickupLoc = new LocationOnRoad(roads.get(pickupRoads.get(i)), pickupOffsets.get(i));
+		LocationOnRoad dropoffLoc = new LocationOnRoad(roads.get(dropoffRoads.get(i)), dropoffOffsets.get(i));
+		return new MatchedResource(pickupLoc, dropoffLoc, times.get(i), tripTimes.get(i));
+	}
+
+	/**
+	 * @return all the resources in the order of the csv file
+	 */
+	public ArrayList<MatchedResource> resources() {
+		ArrayList<MatchedResource> resources = new ArrayList<MatchedResource>(size);
+		for (int i = 0; i < size; i++) {
+			resources.add(get(i));
+		}
+		return resources;
+	}
+
+	/**
+	 * @return an iterator over the resources in the order of the csv file
+	 */
+	public Iterator<MatchedResource> iterator() {
+		return new Iterator<MatchedResource>() {
+
+			// The index of the next resource
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public MatchedResource next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return get(next++);
+			}
+		};
+	}
+
+	/**
+	 * @return the time of the last resource; -1 if there is none
+	 */
+	public long lastTime() {
+		return size == 0 ? -1 : times.get(size - 1);
+	}
+
+	/**
+	 * Check whether a file is a resource dataset file rather than a csv file.
+	 *
+	 * @param file a resource file
+	 * @return true if the file starts with the magic number of a resource dataset file
+	 */
+	public static boolean isDataset(String file) {
+		try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0);
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Write resources matched to a map to a resource dataset file. The file is written under a
+	 * temporary name and then renamed, so that a simulator never sees a partially written file.
+	 *
+	 * @param file the resource dataset file
+	 * @param map the map the resources are matched to
+	 * @param resources the matched resources
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(String file, CityMap map, List<MatchedResource> resources) throws IOException {
+		HashMap<Road, Integer> roadIndexes = new HashMap<Road, Integer>();
+		for (Road road : map.roads()) {
+			roadIndexes.put(road, roadIndexes.size());
+		}
+		int size = resources.size();
+		Path path = Paths.get(file).toAbsolutePath();
+		Path temporary = Files.createTempFile(path.getParent(), "resources", ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.put(mapHash(map));
+				header.putInt(size);
+				header.clear();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+
+				long offset = HEADER_BYTES;
+				MappedByteBuffer times = channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) size * Long.BYTES);
+				offset += (long) size * Long.BYTES;
+				MappedByteBuffer[] columns = new MappedByteBuffer[5];
+				for (int c = 0; c < columns.length; c++) {
+					columns[c] = channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) size * Integer.BYTES);
+					offset += (long) size * Integer.BYTES;
+				}
+				LongBuffer timeColumn = times.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+				IntBuffer[] intColumns = new IntBuffer[columns.length];
+				for (int c = 0; c < columns.length; c++) {
+					intColumns[c] = columns[c].order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+				}
+				for (MatchedResource resource : resources) {
+					timeColumn.put(resource.time);
+					intColumns[0].put(roadIndexes.get(resource.pickupLoc.road));
+					intColumns[1].put(Math.toIntExact(resource.pickupLoc.travelTimeFromStartIntersection));
+					intColumns[2].put(roadIndexes.get(resource.dropoffLoc.road));
+					intColumns[3].put(Math.toIntExact(resource.dropoffLoc.travelTimeFromStartIntersection));
+					intColumns[4].put(Math.toIntExact(resource.tripTime));
+				}
+				times.force();
+				for (MappedByteBuffer column : columns) {
+					column.force();
+				}
+			}
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Compute a SHA-256 hash of the roads of a map in the order of CityMap.roads(): their
+	 * intersections, travel times and the geometry of their links. Two maps with the same hash
+	 * match a point to the same location, so a resource dataset file written for one can be read
+	 * with the other.
+	 *
+	 * @param map the map
+	 * @return the hash
+	 */
+	public static byte[] mapHash(CityMap map) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(5 * Long.BYTES);
+		for (Road road : map.roads()) {
+			buffer.clear();
+			buffer.putLong(road.from.id);
+			buffer.putLong(road.to.id);
+			buffer.putLong(road.travelTime);
+			buffer.putLong(road.links.size());
+			digest.update(buffer.array(), 0, buffer.position());
+			for (Link link : road.links) {
+				buffer.clear();
+				buffer.putLong(Double.doubleToLongBits(link.from.getX()));
+				buffer.putLong(Double.doubleToLongBits(link.from.getY()));
+				buffer.putLong(Double.doubleToLongBits(link.to.getX()));
+				buffer.putLong(Double.doubleToLongBits(link.to.getY()));
+				buffer.putLong(link.travelTime);
+				digest.update(buffer.array(), 0, buffer.position());
+			}
+		}
+		return digest.digest();
+	}
+}
@@ -1,4 +1,5 @@
 import COMSETsystem.BaseAgent;
+import COMSETsystem.EventTrace;
 import COMSETsystem.Simulator;
 
 import java.io.IOException;
@@ -89,8 +90,97 @@ public class Main {
     			agentPlacementSeed = random.nextLong();
             }
             
+            int pathTableThreads = Runtime.getRuntime().availableProcessors();
+            String pathTableThreadsArg = prop.getProperty("comset.pathtable_threads");
+            if (pathTableThreadsArg != null) {
+            	pathTableThreads = Integer.parseInt(pathTableThreadsArg.trim());
+            }
+
+            int resourceThreads = Runtime.getRuntime().availableProcessors();
+            String resourceThreadsArg = prop.getProperty("comset.resource_threads");
+            if (resourceThreadsArg != null) {
+            	resourceThreads = Integer.parseInt(resourceThreadsArg.trim());
+            }
+
+            String cacheDirectory = prop.getProperty("comset.cache_directory");
+            if (cacheDirectory != null) {
+            	cacheDirectory = cacheDirectory.trim();
+            }
+
+            boolean pathTableMemoryMapped = false;
+            String pathTableMemoryMappedArg = prop.getProperty("comset.pathtable_memory_mapped");
+            if (pathTableMemoryMappedArg != null) {
+            	pathTableMemoryMapped = Boolean.parseBoolean(pathTableMemoryMappedArg.trim());
+            }
+            if (pathTableMemoryMapped && cacheDirectory == null) {
+            	System.out.println("comset.pathtable_memory_mapped requires comset.cache_directory; the path table will be kept in the heap.");
+            }
+
+            boolean useAgentIndex = true;
+            String useAgentIndexArg = prop.getProperty("comset.agent_index");
+            if (useAgentIndexArg != null) {
+            	useAgentIndex = Boolean.parseBoolean(useAgentIndexArg.trim());
+            }
+
+            boolean useResourceIndex = true;
+            String useResourceIndexArg = prop.getProperty("comset.resource_index");
+            if (useResourceIndexArg != null) {
+            	useResourceIndex = Boolean.parseBoolean(useResourceIndexArg.trim());
+            }
+
+            String eventScheduler = Simulator.HEAP_SCHEDULER;
+            String eventSchedulerArg = prop.getProperty("comset.event_scheduler");
+            if (eventSchedulerArg != null) {
+            	eventScheduler = eventSchedulerArg.trim();
+            	if (!eventScheduler.equals(Simulator.HEAP_SCHEDULER) && !eventScheduler.equals(Simulator.CALENDAR_SCHEDULER)) {
+            		System.out.println("Unknown comset.event_scheduler " + eventScheduler + "; using " + Simulator.HEAP_SCHEDULER + ".");
+            		eventScheduler = Simulator.HEAP_SCHEDULER;
+            	}
+            }
+
+            int parallelScanThreshold = 0;
+            String parallelScanThresholdArg = prop.getProperty("comset.parallel_scan_threshold");
+            if (parallelScanThresholdArg != null) {
+            	parallelScanThreshold = Integer.parseInt(parallelScanThresholdArg.trim());
+            }
+
+            int simulationThreads = 1;
+            String simulationThreadsArg = prop.getProperty("comset.simulation_threads");
+            if (simulationThreadsArg != null) {
+            	simulationThreads = Integer.parseInt(simulationThreadsArg.trim());
+            }
+
+            long resourceLookahead = 0;
+            String resourceLookaheadArg = prop.getProperty("comset.resource_lookahead");
+            if (resourceLookaheadArg != null) {
+            	resourceLookahead = Long.parseLong(resourceLookaheadArg.trim());
+            }
+
+            long assignmentWindow = 0;
+            String assignmentWindowArg = prop.getProperty("comset.assignment_window");
+            if (assignmentWindowArg != null) {
+            	assignmentWindow = Long.parseLong(assignmentWindowArg.trim());
+            }
+
+            String traceFile = prop.getProperty("comset.trace_file");
+            if (traceFile != null) {
+            	traceFile = traceFile.trim();
+            }
+
             Class<?> agentClass = Class.forName(agentClassName);
 			Simulator simulator = new Simulator((Class<? extends BaseAgent>)agentClass);
+			simulator.setPathTableThreads(pathTableThreads);
+			simulator.setResourceThreads(resourceThreads);
+			simulator.setCacheDirectory(cacheDirectory);
+			simulator.setPathTableMemoryMapped(pathTableMemoryMapped);
+			simulator.setUseAgentIndex(useAgentIndex);
+			simulator.setUseResourceIndex(useResourceIndex);
+			simulator.setEventScheduler(eventScheduler);
+			simulator.setParallelScanThreshold(parallelScanThreshold);
+			simulator.setSimulationThreads(simulationThreads);
+			simulator.setResourceLookahead(resourceLookahead);
+			simulator.setAssignmentWindow(assignmentWindow);
+			simulator.setEventTrace(new EventTrace(displayLogging, traceFile));
 
 			if (!displayLogging) {
 				LogManager.getLogManager().reset();
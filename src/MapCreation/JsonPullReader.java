@@ -0,0 +1,289 @@
+package MapCreation;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A pull parser for JSON text. The values are read one at a time in the order of the text
+ * instead of being parsed into a tree, so that a large JSON file can be read in memory
+ * proportional to what is kept of it. The values of an object are read as:
+ *
+ *   reader.beginObject();
+ *   while (reader.hasNext()) {
+ *       String name = reader.nextName();
+ *       ... read or skip the value
+ *   }
+ *   reader.endObject();
+ *
+ * and arrays likewise with beginArray and endArray.
+ */
+class JsonPullReader {
+
+	// The kinds of the next value; see peek
+	static final int OBJECT = 0;
+	static final int ARRAY = 1;
+	static final int STRING = 2;
+	static final int NUMBER = 3;
+	static final int LITERAL = 4;
+
+	private final Reader in;
+
+	private final char[] buffer = new char[1 << 16];
+
+	// The position of the next character in buffer and the number of characters in it
+	private int position = 0;
+	private int limit = 0;
+
+	// The characters of the last string or number read
+	private final StringBuilder token = new StringBuilder();
+
+	/**
+	 * Constructor of JsonPullReader.
+	 *
+	 * @param in the JSON text
+	 */
+	JsonPullReader(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * @return the kind of the next value, without reading it
+	 * @throws IOException if the text cannot be read or there is no value next
+	 */
+	int peek() throws IOException {
+		int c = peekChar();
+		switch (c) {
+		case '{':
+			return OBJECT;
+		case '[':
+			return ARRAY;
+		case '"':
+			return STRING;
+		case 't':
+		case 'f':
+		case 'n':
+			return LITERAL;
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				return NUMBER;
+			}
+			throw syntaxError("a value");
+		}
+	}
+
+	void beginObject() throws IOException {
+		expect('{');
+	}
+
+	void endObject() throws IOException {
+		expect('}');
+	}
+
+	void beginArray() throws IOException {
+		expect('[');
+	}
+
+	void endArray() throws IOException {
+		expect(']');
+	}
+
+	/**
+	 * @return true if the current object or array has another member; the separating comma is skipped
+	 * @throws IOException if the text cannot be read
+	 */
+	boolean hasNext() throws IOException {
+		int c = peekChar();
+		if (c == ',') {
+			position++;
+			c = peekChar();
+		}
+		return c != '}' && c != ']' && c != -1;
+	}
+
+	/**
+	 * @return the name of the next member of the current object
+	 * @throws IOException if the text cannot be read or there is no name next
+	 */
+	String nextName() throws IOException {
+		String name = nextString();
+		expect(':');
+		return name;
+	}
+
+	/**
+	 * @return the next value, which must be a string
+	 * @throws IOException if the text cannot be read or there is no string next
+	 */
+	String nextString() throws IOException {
+		expect('"');
+		token.setLength(0);
+		while (true) {
+			int c = nextChar();
+			if (c == '"') {
+				return token.toString();
+			}
+			if (c == '\\') {
+				c = nextChar();
+				switch (c) {
+				case 'b':
+					c = '\b';
+					break;
+				case 'f':
+					c = '\f';
+					break;
+				case 'n':
+					c = '\n';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case 'u':
+					int code = 0;
+					for (int i = 0; i < 4; i++) {
+						int digit = Character.digit(nextChar(), 16);
+						if (digit < 0) {
+							throw syntaxError("a hexadecimal digit");
+						}
+						code = code * 16 + digit;
+					}
+					c = code;
+					break;
+				default:
+					// '"', '\\' and '/' stand for themselves
+					break;
+				}
+			}
+			token.append((char) c);
+		}
+	}
+
+	/**
+	 * @return the next value, which must be a number
+	 * @throws IOException if the text cannot be read or there is no number next
+	 */
+	double nextDouble() throws IOException {
+		return Double.parseDouble(nextNumber());
+	}
+
+	/**
+	 * @return the next value, which must be an integer
+	 * @throws IOException if the text cannot be read or there is no integer next
+	 */
+	long nextLong() throws IOException {
+		String number = nextNumber();
+		try {
+			return Long.parseLong(number);
+		} catch (NumberFormatException e) {
+			throw new IOException("Expected an integer but found " + number);
+		}
+	}
+
+	/**
+	 * Skip the next value, including all the values nested in it.
+	 *
+	 * @throws IOException if the text cannot be read or there is no value next
+	 */
+	void skipValue() throws IOException {
+		switch (peek()) {
+		case OBJECT:
+			beginObject();
+			while (hasNext()) {
+				nextName();
+				skipValue();
+			}
+			endObject();
+			break;
+		case ARRAY:
+			beginArray();
+			while (hasNext()) {
+				skipValue();
+			}
+			endArray();
+			break;
+		case STRING:
+			nextString();
+			break;
+		case NUMBER:
+			nextNumber();
+			break;
+		default:
+			// true, false or null
+			while (Character.isLetter(peekRawChar())) {
+				position++;
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Read the characters of a number.
+	 */
+	private String nextNumber() throws IOException {
+		if (peek() != NUMBER) {
+			throw syntaxError("a number");
+		}
+		token.setLength(0);
+		int c;
+		while ((c = peekRawChar()) == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+			token.append((char) c);
+			position++;
+		}
+		return token.toString();
+	}
+
+	/**
+	 * Read a structural character, skipping the white space before it.
+	 */
+	private void expect(char expected) throws IOException {
+		if (peekChar() != expected) {
+			throw syntaxError("'" + expected + "'");
+		}
+		position++;
+	}
+
+	/**
+	 * @return the next character that is not white space, without reading it; -1 at the end of the text
+	 */
+	private int peekChar() throws IOException {
+		int c;
+		while ((c = peekRawChar()) == ' ' || c == '\n' || c == '\r' || c == '\t') {
+			position++;
+		}
+		return c;
+	}
+
+	/**
+	 * @return the next character, without reading it; -1 at the end of the text
+	 */
+	private int peekRawChar() throws IOException {
+		if (position == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position];
+	}
+
+	/**
+	 * Read the next character within a string.
+	 */
+	private int nextChar() throws IOException {
+		int c = peekRawChar();
+		if (c == -1) {
+			throw new IOException("Unexpected end of the JSON text");
+		}
+		position++;
+		return c;
+	}
+
+	private IOException syntaxError(String expected) throws IOException {
+		int c = peekRawChar();
+		return new IOException("Expected " + expected + " but found " + (c == -1 ? "the end of the JSON text" : "'" + (char) c + "'"));
+	}
+}
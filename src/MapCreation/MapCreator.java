@@ -2,15 +2,21 @@ package MapCreation;
 
 import COMSETsystem.*;
 import DataParsing.GeoProjector;
-import DataParsing.KdTree;
+import DataParsing.BalancedKdTree;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
@@ -18,10 +24,6 @@ import java.util.TreeSet;
 import java.io.IOException;
 import java.util.Map;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
 /**
  * @author Robert van Barlingen
@@ -90,7 +92,7 @@ public class MapCreator {
 	/**
 	 * Constructor of the MapCreator class. Reads the JSON file defined by fileName and
 	 * converts it into a map represented by { @code vertices ).
-	 * Uses Json.simple package
+	 * The file is read with a streaming JSON reader (see JsonPullReader).
 	 *
 	 * @param fileName the JSON file that will be read
 	 * @param boundingPolygonKMLFile a KML file defining a bounding polygon of the simulated area
@@ -107,122 +109,27 @@ public class MapCreator {
 		// Initialize vertices to be a TreeMap.
 		vertices = new TreeMap<>(); 
 
-		JSONParser parser = new JSONParser();
-		try {
-			// read file
-			Reader reader = new FileReader(mapFile);
-			// create JSONObject based on the file
-			Object obj = parser.parse(reader);
-			JSONObject jsonObject = (JSONObject) obj;
-
-			// loop over all the elements in the JSON file to set all the vertices
-			JSONArray elements = (JSONArray) jsonObject.get("elements");
-			boolean firstVertex = true;
-			for (Object elementObject : elements) {
-				JSONObject element = (JSONObject) elementObject;
-				String type = (String) element.get("type");
-				// if the type is a vertex, then create an Vertex
-				if (type.equals("node")) {
-					long id = (long) element.get("id");
-					double latitude = (double) element.get("lat");
-					double longitude = (double) element.get("lon");
-					if (firstVertex) {
-						this.projector = new GeoProjector(latitude, longitude);
-						firstVertex = false;
-					}
-					double xy[] = projector.fromLatLon(latitude, longitude);
-					vertices.put(id, new Vertex(longitude, latitude, xy[0], xy[1], id));
+		// The ways that could not be added when they were read, because some of their nodes came
+		// later in the file. They are added in the order of the file once all the nodes are read.
+		WaySpool spool = new WaySpool();
+		try (Reader reader = new BufferedReader(new FileReader(mapFile))) {
+			// Read the elements one at a time rather than parsing the whole file into a tree, so
+			// that only the vertices and links are kept in memory.
+			JsonPullReader json = new JsonPullReader(reader);
+			json.beginObject();
+			while (json.hasNext()) {
+				if (!json.nextName().equals("elements")) {
+					json.skipValue();
+					continue;
 				}
-			}
-
-			// loop over all the elements again to set the roads
-			for (Object elementObject : elements) {
-				JSONObject element = (JSONObject) elementObject;
-				String type = (String) element.get("type");
-				if (type.equals("way")) { // check if it's a road
-					String highway;
-					double maxSpeed; // speed limit in km/h
-					boolean oneway = false;
-					Object tagsObject = element.get("tags");
-					JSONObject tags = (JSONObject) tagsObject;
-					highway = (String)tags.get("highway");
-					// set speed limit
-					if (tags.containsKey("maxspeed")) {
-						String speedString = (String) tags.get("maxspeed");
-						if( speedString.contains(" mph")) {
-							speedString = speedString.replace(" mph", "");
-							maxSpeed = Integer.parseInt(speedString) * kilometersPerMile; // convert from mph to kmph
-						} else {
-							// default unit is km/h
-							maxSpeed = Integer.parseInt(speedString);
-						}
-					} else {
-						switch(highway) {
-						case "motorway":
-							maxSpeed = speedMotorway;
-							break;
-						case "motorway_link":
-							maxSpeed = speedMotorwayLink;
-							break;
-						case "trunk":
-							maxSpeed = speedTrunk;
-							break;
-						case "trunk_link":
-							maxSpeed = speedTrunkLink;
-							break;
-						case "primary":
-							maxSpeed = speedPrimary;
-							break;
-						case "primary_link":
-							maxSpeed = speedPrimaryLink;
-							break;
-						case "secondary":
-							maxSpeed = speedSecondary;
-							break;
-						case "secondary_link":
-							maxSpeed = speedSecondaryLink;
-							break;
-						case "tertiary":
-							maxSpeed = speedTertiary;
-							break;
-						case "tertiary_link":
-							maxSpeed = speedTertiaryLink;
-							break;
-						case "unclassified":
-							maxSpeed = speedUnclassified;
-							break;
-						case "residential":
-							maxSpeed = speedResidential;
-							break;
-						case "living_street":
-							maxSpeed = speedLivingStreet;
-							break;
-						default:
-							maxSpeed = speedDefault;
-							break;
-						}
-					}
-					// check if it's a one way street
-					if(tags.containsKey("oneway") && ((String)tags.get("oneway")).equals("yes")) {
-						oneway = true;
-					}
-					// set roads
-					JSONArray jsonvertices = (JSONArray) element.get("nodes");
-					int length = jsonvertices.size();
-					for (int i = 0; i < length - 1; i++) {
-						long id1 = (long)jsonvertices.get(i);
-						long id2 = (long)jsonvertices.get(i+1);
-
-						double distance = vertices.get(id1).xy.distance(vertices.get(id2).xy);
-
-						// Convert km/h to meters per second; apply speed reduction
-						vertices.get(id1).addEdge(vertices.get(id2), distance, maxSpeed * 1000 / 3600 / speedReduction);
-						if (!oneway) {
-							vertices.get(id2).addEdge(vertices.get(id1), distance, maxSpeed * 1000 / 3600 / speedReduction);
-						}
-					}
+				json.beginArray();
+				while (json.hasNext()) {
+					readElement(json, spool, speedReduction);
 				}
+				json.endArray();
 			}
+			json.endObject();
+			spool.addTo(this, speedReduction);
 
 		// handle exceptions
 		} catch (FileNotFoundException e) {
@@ -231,14 +138,248 @@ public class MapCreator {
 		} catch (IOException e) {
 			System.out.println("error IOException");
 			e.printStackTrace();
-		} catch (ParseException e) {
-			System.out.println("error ParseException");
-			e.printStackTrace();
 		}
 		
 		setIdCounter();
 	}
 
+	/**
+	 * Read an element of the JSON file. A node becomes a vertex. A way becomes links between
+	 * its consecutive nodes, right away if all its nodes have been read and no earlier way is
+	 * waiting for its nodes, so that the links are added in the order of the file; otherwise it
+	 * is spooled.
+	 */
+	private void readElement(JsonPullReader json, WaySpool spool, double speedReduction) throws IOException {
+		String type = null;
+		long id = 0;
+		double latitude = 0;
+		double longitude = 0;
+		String highway = null;
+		String maxSpeedTag = null;
+		String onewayTag = null;
+		spool.nodes.clear();
+
+		json.beginObject();
+		while (json.hasNext()) {
+			switch (json.nextName()) {
+			case "type":
+				type = json.nextString();
+				break;
+			case "id":
+				id = json.nextLong();
+				break;
+			case "lat":
+				latitude = json.nextDouble();
+				break;
+			case "lon":
+				longitude = json.nextDouble();
+				break;
+			case "nodes":
+				json.beginArray();
+				while (json.hasNext()) {
+					spool.nodes.add(json.nextLong());
+				}
+				json.endArray();
+				break;
+			case "tags":
+				json.beginObject();
+				while (json.hasNext()) {
+					String key = json.nextName();
+					if (json.peek() != JsonPullReader.STRING) {
+						json.skipValue();
+					} else if (key.equals("highway")) {
+						highway = json.nextString();
+					} else if (key.equals("maxspeed")) {
+						maxSpeedTag = json.nextString();
+					} else if (key.equals("oneway")) {
+						onewayTag = json.nextString();
+					} else {
+						json.skipValue();
+					}
+				}
+				json.endObject();
+				break;
+			default:
+				json.skipValue();
+				break;
+			}
+		}
+		json.endObject();
+
+		if ("node".equals(type)) {
+			if (projector == null) {
+				this.projector = new GeoProjector(latitude, longitude);
+			}
+			double xy[] = projector.fromLatLon(latitude, longitude);
+			vertices.put(id, new Vertex(longitude, latitude, xy[0], xy[1], id));
+		} else if ("way".equals(type)) {
+			double maxSpeed = speedLimit(highway, maxSpeedTag);
+			boolean oneway = "yes".equals(onewayTag);
+			boolean nodesRead = spool.isEmpty();
+			for (int i = 0; nodesRead && i < spool.nodes.size(); i++) {
+				nodesRead = vertices.containsKey(spool.nodes.get(i));
+			}
+			if (nodesRead) {
+				addWay(spool.nodes, 0, spool.nodes.size(), maxSpeed, oneway, speedReduction);
+			} else {
+				spool.spool(maxSpeed, oneway);
+			}
+		}
+	}
+
+	/**
+	 * Add the links between the consecutive nodes of a way.
+	 *
+	 * @param nodes the node ids of the way are nodes.get(from) to nodes.get(to - 1)
+	 * @param maxSpeed the speed limit in km/h
+	 * @param oneway true if the way is a one way street
+	 * @param speedReduction the speed reduction
+	 */
+	private void addWay(LongList nodes, int from, int to, double maxSpeed, boolean oneway, double speedReduction) {
+		for (int i = from; i < to - 1; i++) {
+			long id1 = nodes.get(i);
+			long id2 = nodes.get(i + 1);
+
+			double distance = vertices.get(id1).xy.distance(vertices.get(id2).xy);
+
+			// Convert km/h to meters per second; apply speed reduction
+			vertices.get(id1).addEdge(vertices.get(id2), distance, maxSpeed * 1000 / 3600 / speedReduction);
+			if (!oneway) {
+				vertices.get(id2).addEdge(vertices.get(id1), distance, maxSpeed * 1000 / 3600 / speedReduction);
+			}
+		}
+	}
+
+	/**
+	 * The speed limit of a way in km/h.
+	 *
+	 * @param highway the highway tag of the way
+	 * @param maxSpeedTag the maxspeed tag of the way; null if it has none
+	 * @return the speed limit
+	 */
+	static double speedLimit(String highway, String maxSpeedTag) {
+		if (maxSpeedTag != null) {
+			if (maxSpeedTag.contains(" mph")) {
+				return Integer.parseInt(maxSpeedTag.replace(" mph", "")) * kilometersPerMile; // convert from mph to kmph
+			}
+			// default unit is km/h
+			return Integer.parseInt(maxSpeedTag);
+		}
+		if (highway == null) {
+			return speedDefault;
+		}
+		switch (highway) {
+		case "motorway":
+			return speedMotorway;
+		case "motorway_link":
+			return speedMotorwayLink;
+		case "trunk":
+			return speedTrunk;
+		case "trunk_link":
+			return speedTrunkLink;
+		case "primary":
+			return speedPrimary;
+		case "primary_link":
+			return speedPrimaryLink;
+		case "secondary":
+			return speedSecondary;
+		case "secondary_link":
+			return speedSecondaryLink;
+		case "tertiary":
+			return speedTertiary;
+		case "tertiary_link":
+			return speedTertiaryLink;
+		case "unclassified":
+			return speedUnclassified;
+		case "residential":
+			return speedResidential;
+		case "living_street":
+			return speedLivingStreet;
+		default:
+			return speedDefault;
+		}
+	}
+
+	/**
+	 * A growable array of longs.
+	 */
+	private static class LongList {
+		private long[] values = new long[16];
+		private int size = 0;
+
+		void add(long value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		long get(int i) {
+			return values[i];
+		}
+
+		int size() {
+			return size;
+		}
+
+		void clear() {
+			size = 0;
+		}
+	}
+
+	/**
+	 * The ways waiting for their nodes, in the order of the file, in primitive arrays. nodes holds
+	 * the node ids of the way being read.
+	 */
+	private static class WaySpool {
+		// The node ids of the way being read
+		final LongList nodes = new LongList();
+
+		// The node ids of all the spooled ways, one after the other
+		private final LongList spooledNodes = new LongList();
+
+		// The index in spooledNodes of the first node of each spooled way, and the end of the last one
+		private final LongList starts = new LongList();
+
+		// The speed limit and whether it is a one way street, of each spooled way
+		private double[] maxSpeeds = new double[16];
+		private boolean[] oneways = new boolean[16];
+
+		WaySpool() {
+			starts.add(0);
+		}
+
+		boolean isEmpty() {
+			return starts.size() == 1;
+		}
+
+		/**
+		 * Spool the way being read.
+		 */
+		void spool(double maxSpeed, boolean oneway) {
+			int way = starts.size() - 1;
+			if (way == maxSpeeds.length) {
+				maxSpeeds = Arrays.copyOf(maxSpeeds, way * 2);
+				oneways = Arrays.copyOf(oneways, way * 2);
+			}
+			maxSpeeds[way] = maxSpeed;
+			oneways[way] = oneway;
+			for (int i = 0; i < nodes.size(); i++) {
+				spooledNodes.add(nodes.get(i));
+			}
+			starts.add(spooledNodes.size());
+		}
+
+		/**
+		 * Add the links of the spooled ways to a map creator that has read all the nodes.
+		 */
+		void addTo(MapCreator creator, double speedReduction) {
+			for (int way = 0; way < starts.size() - 1; way++) {
+				creator.addWay(spooledNodes, (int) starts.get(way), (int) starts.get(way + 1), maxSpeeds[way], oneways[way], speedReduction);
+			}
+		}
+	}
+
 	/**
 	 * Create a map.
 	 * @return map
@@ -645,12 +786,11 @@ public class MapCreator {
 	 * @return an instance of CityMap
 	 */
 	public CityMap outputCityMap() {
-		KdTree kdTree = new KdTree();
+		List<Link> links = new ArrayList<>();
 		for (Vertex vertex : vertices.values()) {
-			for (Link link : vertex.getLinksFrom()) {
-				kdTree.insert(link);	
-			}			
+			links.addAll(vertex.getLinksFrom());
 		}
+		BalancedKdTree kdTree = new BalancedKdTree(links);
 		List<Road> roads = new ArrayList<>();
 		for (Intersection inter : intersections.values()) {
 			for (Road road : inter.getRoadsFrom()) {
@@ -660,6 +800,39 @@ public class MapCreator {
 		return new CityMap(intersections, roads, projector, kdTree);
 	}
 
+	/**
+	 * Compute a SHA-256 hash of the inputs that determine the map created by a MapCreator,
+	 * i.e., the contents of the map JSON file and of the bounding polygon KML file, and the
+	 * speed reduction. Files derived from a map can be cached under this hash.
+	 *
+	 * @param mapFile the JSON file of the map
+	 * @param boundingPolygonKMLFile the KML file defining the bounding polygon
+	 * @param speedReduction the speed reduction
+	 * @return the hash
+	 * @throws IOException if one of the files cannot be read
+	 */
+	public static byte[] inputHash(String mapFile, String boundingPolygonKMLFile, double speedReduction) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		byte[] buffer = new byte[1 << 16];
+		for (String file : new String[] {mapFile, boundingPolygonKMLFile}) {
+			try (InputStream in = new FileInputStream(file)) {
+				int n;
+				while ((n = in.read(buffer)) > 0) {
+					digest.update(buffer, 0, n);
+				}
+			}
+			// separate the two files so that moving bytes from one to the other changes the hash
+			digest.update((byte) 0);
+		}
+		digest.update(ByteBuffer.allocate(Long.BYTES).putLong(Double.doubleToLongBits(speedReduction)).array());
+		return digest.digest();
+	}
+
 	public List<double[]> boundingPolygon() {
 		return boundingPolygon;
 	}
@@ -0,0 +1,250 @@
+package MapCreation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import COMSETsystem.CityMap;
+import COMSETsystem.Intersection;
+import COMSETsystem.Link;
+import COMSETsystem.Road;
+import COMSETsystem.Vertex;
+import DataParsing.GeoProjector;
+import DataParsing.BalancedKdTree;
+
+/**
+ * The MapSnapshot keeps a map created by a MapCreator in a file, so that the map does not have to
+ * be created again when the simulator is started with the same map JSON file, bounding polygon
+ * KML file and speed reduction. Like the PathTableCache, the file is named after a hash of these
+ * three inputs (see MapCreator.inputHash). Loading a snapshot bypasses the MapCreator entirely
+ * and restores the same map: the same vertices, intersections, links and roads with the same
+ * ids, the same projector, the same bounding polygon (see MapCreator.insidePolygon) and the same
+ * kd-tree, whose links are stored in the order from which MapCreator.outputCityMap builds it.
+ *
+ * The file is written with a DataOutputStream:
+ *
+ *   int      magic number
+ *   int      format version
+ *   byte[32] hash of the inputs
+ *   double   latitude and longitude of the reference location of the projector
+ *   int      number of points of the bounding polygon, followed by their x and y
+ *   int      number of vertices, followed by the id, longitude, latitude, x, y of each vertex
+ *            and whether it is an intersection
+ *   int      number of links in kd-tree order, followed by the id, the indexes of the start and
+ *            end vertices, the length and the speed of each link
+ *   int      number of roads in CityMap.roads() order, followed by the id, the number of links
+ *            and the indexes of the links of each road
+ */
+public class MapSnapshot {
+
+	// "CMMS"
+	static final int MAGIC = 0x434D4D53;
+
+	// Must be increased whenever the layout of the file changes.
+	static final int VERSION = 1;
+
+	private static final int HASH_BYTES = 32;
+
+	// The snapshot file
+	private final Path file;
+
+	// The hash of the inputs the map was created from
+	private final byte[] inputHash;
+
+	/**
+	 * Constructor of MapSnapshot.
+	 *
+	 * @param directory the directory holding the cache files; created if it does not exist
+	 * @param mapJSONFile the map file
+	 * @param boundingPolygonKMLFile the KML file defining the bounding polygon
+	 * @param speedReduction the speed reduction
+	 * @throws IOException if the input files cannot be read
+	 */
+	public MapSnapshot(String directory, String mapJSONFile, String boundingPolygonKMLFile, double speedReduction) throws IOException {
+		inputHash = MapCreator.inputHash(mapJSONFile, boundingPolygonKMLFile, speedReduction);
+		StringBuilder name = new StringBuilder("map-");
+		for (byte b : inputHash) {
+			name.append(String.format("%02x", b));
+		}
+		name.append(".bin");
+		file = Paths.get(directory, name.toString());
+	}
+
+	/**
+	 * @return the snapshot file
+	 */
+	public Path file() {
+		return file;
+	}
+
+	/**
+	 * Load the map from the snapshot file. Also sets the bounding polygon of MapCreator.
+	 *
+	 * @return the map, without its path table; null if there is no valid snapshot file
+	 */
+	public CityMap load() {
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				System.out.println("Ignoring outdated map snapshot file " + file);
+				return null;
+			}
+			byte[] hash = new byte[HASH_BYTES];
+			in.readFully(hash);
+			if (!Arrays.equals(hash, inputHash)) {
+				System.out.println("Ignoring outdated map snapshot file " + file);
+				return null;
+			}
+
+			GeoProjector projector = new GeoProjector(in.readDouble(), in.readDouble());
+
+			int polygonSize = in.readInt();
+			List<double[]> polygon = new ArrayList<>(polygonSize);
+			for (int i = 0; i < polygonSize; i++) {
+				polygon.add(new double[] {in.readDouble(), in.readDouble()});
+			}
+
+			Vertex[] vertices = new Vertex[in.readInt()];
+			Map<Long, Intersection> intersections = new TreeMap<>();
+			for (int i = 0; i < vertices.length; i++) {
+				long id = in.readLong();
+				double longitude = in.readDouble();
+				double latitude = in.readDouble();
+				double x = in.readDouble();
+				double y = in.readDouble();
+				vertices[i] = new Vertex(longitude, latitude, x, y, id);
+				if (in.readBoolean()) {
+					Intersection intersection = new Intersection(vertices[i]);
+					vertices[i].intersection = intersection;
+					intersections.put(intersection.id, intersection);
+				}
+			}
+
+			Link[] links = new Link[in.readInt()];
+			for (int i = 0; i < links.length; i++) {
+				long id = in.readLong();
+				Vertex from = vertices[in.readInt()];
+				Vertex to = vertices[in.readInt()];
+				double length = in.readDouble();
+				double speed = in.readDouble();
+				links[i] = new Link(id, from, to, length, speed);
+				from.linksMapFrom.put(to, links[i]);
+				to.linksMapTo.put(from, links[i]);
+			}
+			BalancedKdTree kdTree = new BalancedKdTree(Arrays.asList(links));
+
+			int roadCount = in.readInt();
+			List<Road> roads = new ArrayList<>(roadCount);
+			for (int i = 0; i < roadCount; i++) {
+				Road road = new Road(in.readLong());
+				int linkCount = in.readInt();
+				for (int j = 0; j < linkCount; j++) {
+					road.addLink(links[in.readInt()]);
+				}
+				road.from = road.links.get(0).from.intersection;
+				road.to = road.links.get(linkCount - 1).to.intersection;
+				road.from.roadsMapFrom.put(road.to, road);
+				road.to.roadsMapTo.put(road.from, road);
+				roads.add(road);
+			}
+
+			MapCreator.boundingPolygon = polygon;
+			return new CityMap(intersections, roads, projector, kdTree);
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Store a map in the snapshot file. The file is written under a temporary name and then
+	 * renamed, so that simulators started at the same time never see a partially written file.
+	 *
+	 * @param creator the map creator, after createMap
+	 * @param map the map output by the map creator
+	 */
+	public void store(MapCreator creator, CityMap map) {
+		Path temporary = null;
+		try {
+			Path directory = file.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			temporary = Files.createTempFile(directory, "map", ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.write(inputHash);
+
+				out.writeDouble(creator.projector.referenceLatitude());
+				out.writeDouble(creator.projector.referenceLongitude());
+
+				out.writeInt(MapCreator.boundingPolygon.size());
+				for (double[] point : MapCreator.boundingPolygon) {
+					out.writeDouble(point[0]);
+					out.writeDouble(point[1]);
+				}
+
+				HashMap<Vertex, Integer> vertexIndexes = new HashMap<>();
+				out.writeInt(creator.vertices.size());
+				for (Vertex vertex : creator.vertices.values()) {
+					vertexIndexes.put(vertex, vertexIndexes.size());
+					out.writeLong(vertex.id);
+					out.writeDouble(vertex.longitude);
+					out.writeDouble(vertex.latitude);
+					out.writeDouble(vertex.getX());
+					out.writeDouble(vertex.getY());
+					out.writeBoolean(vertex.intersection != null);
+				}
+
+				// The links in the order from which MapCreator.outputCityMap builds the kd-tree
+				HashMap<Link, Integer> linkIndexes = new HashMap<>();
+				int linkCount = 0;
+				for (Vertex vertex : creator.vertices.values()) {
+					linkCount += vertex.linksMapFrom.size();
+				}
+				out.writeInt(linkCount);
+				for (Vertex vertex : creator.vertices.values()) {
+					for (Link link : vertex.getLinksFrom()) {
+						linkIndexes.put(link, linkIndexes.size());
+						out.writeLong(link.id);
+						out.writeInt(vertexIndexes.get(link.from));
+						out.writeInt(vertexIndexes.get(link.to));
+						out.writeDouble(link.length);
+						out.writeDouble(link.speed);
+					}
+				}
+
+				out.writeInt(map.roads().size());
+				for (Road road : map.roads()) {
+					out.writeLong(road.id);
+					out.writeInt(road.links.size());
+					for (Link link : road.links) {
+						out.writeInt(linkIndexes.get(link));
+					}
+				}
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+			if (temporary != null) {
+				try {
+					Files.deleteIfExists(temporary);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,217 @@
+import COMSETsystem.BaseAgent;
+import COMSETsystem.CityMap;
+import COMSETsystem.SimulationResult;
+import COMSETsystem.Simulator;
+import COMSETsystem.ThreadSafeAgent;
+import DataParsing.MapWithData;
+import DataParsing.MatchedResource;
+
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.LogManager;
+
+/**
+ * The Sweep class runs the simulation for many configurations and writes one table of results.
+ * It reads etc/config.properties like Main, and the values to sweep from the comset.sweep.*
+ * properties, each a comma-separated list:
+ *
+ * comset.sweep.number_of_agents, comset.sweep.resource_maximum_life_time and
+ * comset.sweep.agent_class; a property that is not set takes the value of the corresponding
+ * comset.* property. Every combination of the values is simulated.
+ *
+ * The map, the path table and the map-matched resources are loaded once and shared by all the
+ * simulations, which run concurrently on comset.sweep.threads threads, each with its own events,
+ * agents and statistics. The agents of a class that does not implement ThreadSafeAgent may share
+ * static state, so the simulations with such a class run one at a time. All the simulations
+ * place the agents with the same seed. The results are written as CSV to
+ * comset.sweep.results_file.
+ *
+ * Usage: mvn exec:java -Dexec.mainClass="Sweep"
+ */
+public class Sweep {
+
+	// Configuring a simulator creates its agents, which may set up static state on the first agent.
+	private static final Object configureLock = new Object();
+
+	public static void main(String[] args) throws IOException {
+
+		String configFile = "etc/config.properties";
+		try {
+			Properties prop = new Properties();
+			prop.load(new FileInputStream(configFile));
+
+			String mapJSONFile = prop.getProperty("comset.map_JSON_file").trim();
+			String datasetFile = prop.getProperty("comset.dataset_file").trim();
+			String boundingPolygonKMLFile = prop.getProperty("comset.bounding_polygon_KML_file").trim();
+			double speedReduction = Double.parseDouble(prop.getProperty("comset.speed_reduction").trim());
+
+			List<String> numbersOfAgents = values(prop, "comset.sweep.number_of_agents", "comset.number_of_agents");
+			List<String> resourceMaximumLifeTimes = values(prop, "comset.sweep.resource_maximum_life_time", "comset.resource_maximum_life_time");
+			List<String> agentClassNames = values(prop, "comset.sweep.agent_class", "comset.agent_class");
+
+			long agentPlacementSeed = -1;
+			String agentPlacementSeedArg = prop.getProperty("comset.agent_placement_seed");
+			if (agentPlacementSeedArg != null) {
+				agentPlacementSeed = Long.parseLong(agentPlacementSeedArg.trim());
+			}
+			if (agentPlacementSeed < 0) {
+				agentPlacementSeed = new Random().nextLong();
+			}
+
+			int pathTableThreads = Runtime.getRuntime().availableProcessors();
+			String pathTableThreadsArg = prop.getProperty("comset.pathtable_threads");
+			if (pathTableThreadsArg != null) {
+				pathTableThreads = Integer.parseInt(pathTableThreadsArg.trim());
+			}
+
+			int resourceThreads = Runtime.getRuntime().availableProcessors();
+			String resourceThreadsArg = prop.getProperty("comset.resource_threads");
+			if (resourceThreadsArg != null) {
+				resourceThreads = Integer.parseInt(resourceThreadsArg.trim());
+			}
+
+			String cacheDirectory = prop.getProperty("comset.cache_directory");
+			if (cacheDirectory != null) {
+				cacheDirectory = cacheDirectory.trim();
+			}
+
+			boolean pathTableMemoryMapped = false;
+			String pathTableMemoryMappedArg = prop.getProperty("comset.pathtable_memory_mapped");
+			if (pathTableMemoryMappedArg != null) {
+				pathTableMemoryMapped = Boolean.parseBoolean(pathTableMemoryMappedArg.trim());
+			}
+
+			boolean useAgentIndex = true;
+			String useAgentIndexArg = prop.getProperty("comset.agent_index");
+			if (useAgentIndexArg != null) {
+				useAgentIndex = Boolean.parseBoolean(useAgentIndexArg.trim());
+			}
+
+			boolean useResourceIndex = true;
+			String useResourceIndexArg = prop.getProperty("comset.resource_index");
+			if (useResourceIndexArg != null) {
+				useResourceIndex = Boolean.parseBoolean(useResourceIndexArg.trim());
+			}
+
+			String eventScheduler = Simulator.HEAP_SCHEDULER;
+			String eventSchedulerArg = prop.getProperty("comset.event_scheduler");
+			if (eventSchedulerArg != null) {
+				eventScheduler = eventSchedulerArg.trim();
+			}
+
+			long assignmentWindow = 0;
+			String assignmentWindowArg = prop.getProperty("comset.assignment_window");
+			if (assignmentWindowArg != null) {
+				assignmentWindow = Long.parseLong(assignmentWindowArg.trim());
+			}
+
+			int sweepThreads = Runtime.getRuntime().availableProcessors();
+			String sweepThreadsArg = prop.getProperty("comset.sweep.threads");
+			if (sweepThreadsArg != null) {
+				sweepThreads = Integer.parseInt(sweepThreadsArg.trim());
+			}
+
+			String resultsFile = "sweep_results.csv";
+			String resultsFileArg = prop.getProperty("comset.sweep.results_file");
+			if (resultsFileArg != null) {
+				resultsFile = resultsFileArg.trim();
+			}
+
+			LogManager.getLogManager().reset();
+
+			// Load the map, the path table and the resources once for all the simulations.
+			CityMap map = Simulator.createMap(mapJSONFile, boundingPolygonKMLFile, speedReduction, pathTableThreads, cacheDirectory, pathTableMemoryMapped);
+			System.out.println("Loading and map-matching resources...");
+			List<MatchedResource> resources = new MapWithData(map, datasetFile, agentPlacementSeed).matchResources(resourceThreads);
+
+			ExecutorService pool = Executors.newFixedThreadPool(sweepThreads);
+			List<Future<SimulationResult>> results = new ArrayList<>();
+			for (String agentClassName : agentClassNames) {
+				@SuppressWarnings("unchecked")
+				Class<? extends BaseAgent> agentClass = (Class<? extends BaseAgent>) Class.forName(agentClassName);
+				for (String numberOfAgents : numbersOfAgents) {
+					for (String resourceMaximumLifeTime : resourceMaximumLifeTimes) {
+						final long agents = Long.parseLong(numberOfAgents);
+						final long lifeTime = Long.parseLong(resourceMaximumLifeTime);
+						final long seed = agentPlacementSeed;
+						final boolean agentIndex = useAgentIndex;
+						final boolean resourceIndex = useResourceIndex;
+						final String scheduler = eventScheduler;
+						final long window = assignmentWindow;
+						results.add(pool.submit(() -> {
+							Simulator simulator = new Simulator(agentClass);
+							simulator.setUseAgentIndex(agentIndex);
+							simulator.setUseResourceIndex(resourceIndex);
+							simulator.setEventScheduler(scheduler);
+							simulator.setAssignmentWindow(window);
+							simulator.setQuiet(true);
+							if (ThreadSafeAgent.class.isAssignableFrom(agentClass)) {
+								synchronized (configureLock) {
+									simulator.configure(map, resources, agents, lifeTime, seed);
+								}
+								simulator.run();
+							} else {
+								// The agents are created by configure, so it must not run while
+								// another simulation of the class is running either.
+								synchronized (agentClass) {
+									synchronized (configureLock) {
+										simulator.configure(map, resources, agents, lifeTime, seed);
+									}
+									simulator.run();
+								}
+							}
+							SimulationResult result = simulator.result();
+							System.out.println("Finished " + result.agentClassName + " with " + result.numberOfAgents
+									+ " agents and a maximum life time of " + result.resourceMaximumLifeTime + " seconds.");
+							return result;
+						}));
+					}
+				}
+			}
+			pool.shutdown();
+
+			try (PrintWriter out = new PrintWriter(new FileWriter(resultsFile))) {
+				out.println("agent_class,number_of_agents,resource_maximum_life_time,resources,assignments,expired_resources,"
+						+ "expiration_percentage,average_agent_search_time,average_resource_wait_time,average_agent_cruise_time,"
+						+ "average_agent_approach_time,average_resource_trip_time,running_time");
+				for (Future<SimulationResult> future : results) {
+					SimulationResult r = future.get();
+					out.println(r.agentClassName + "," + r.numberOfAgents + "," + r.resourceMaximumLifeTime + "," + r.resources
+							+ "," + r.assignments + "," + r.expiredResources + "," + r.expirationPercentage()
+							+ "," + r.averageAgentSearchTime + "," + r.averageResourceWaitTime + "," + r.averageAgentCruiseTime
+							+ "," + r.averageAgentApproachTime + "," + r.averageResourceTripTime + "," + r.runningTime);
+				}
+			}
+			System.out.println("Results written to " + resultsFile);
+
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return the comma-separated values of a sweep property, or the value of the base property if it is not set
+	 */
+	private static List<String> values(Properties prop, String sweepProperty, String baseProperty) {
+		String values = prop.getProperty(sweepProperty);
+		if (values == null) {
+			values = prop.getProperty(baseProperty);
+		}
+		List<String> list = new ArrayList<>();
+		for (String value : values.split(",")) {
+			if (!value.trim().isEmpty()) {
+				list.add(value.trim());
+			}
+		}
+		return list;
+	}
+}
@@ -5,6 +5,7 @@ import COMSETsystem.CityMap;
 import COMSETsystem.Intersection;
 import COMSETsystem.LocationOnRoad;
 import COMSETsystem.Road;
+import COMSETsystem.ThreadSafeAgent;
 
 import java.util.*;
 import java.util.logging.Level;
@@ -17,7 +18,7 @@ import java.util.logging.Logger;
  * the agent chooses another random intersection to go to. This procedure is repeated until the agent
  * is assigned to a resource.
  */
-public class AgentRandomDestination extends BaseAgent {
+public class AgentRandomDestination extends BaseAgent implements ThreadSafeAgent {
 
 	// search route stored as a list of intersections.
 	LinkedList<Intersection> route = new LinkedList<Intersection>();
@@ -4,6 +4,7 @@ import COMSETsystem.BaseAgent;
 import COMSETsystem.CityMap;
 import COMSETsystem.Intersection;
 import COMSETsystem.LocationOnRoad;
+import COMSETsystem.ThreadSafeAgent;
 
 import java.util.*;
 import java.util.logging.Level;
@@ -13,7 +14,7 @@ import java.util.logging.Logger;
  * Random walk search algorithm:
  * At each intersection choose a random adjacent intersection to go to.
  */
-public class AgentRandomWalk extends BaseAgent {
+public class AgentRandomWalk extends BaseAgent implements ThreadSafeAgent {
 
 	// search route stored as a list of intersections.
 	LinkedList<Intersection> route = new LinkedList<Intersection>();
@@ -457,9 +457,8 @@ public class IntellgentDataModel {
      * @return
      */
     public int getClusterIndex(Point p){
-        //map matching
-        LocationOnRoad location = mapMatch(p.lon,p.lat);
-        Road road = location.road;
+        //map matching; only the road is needed, so the point is not snapped onto the link
+        Road road = map.getNearestLink(p.lon,p.lat).road;
         for(int k=0;k<roadClusters.size();k++){
             if(contain(roadClusters.get(k),road))
                 return k;
@@ -589,11 +588,7 @@ public class IntellgentDataModel {
      */
     public LocationOnRoad mapMatch(double longitude, double latitude) {
         Link link = map.getNearestLink(longitude, latitude);
-        double xy[] = map.projector().fromLatLon(latitude, longitude);
-        double [] snapResult = snap(link.from.getX(), link.from.getY(), link.to.getX(), link.to.getY(), xy[0], xy[1]);
-        double distanceFromStartVertex = this.distance(snapResult[0], snapResult[1], link.from.getX(), link.from.getY());
-        long travelTimeFromStartVertex = Math.round(distanceFromStartVertex / link.length * link.travelTime);
-        long travelTimeFromStartIntersection = link.beginTime + travelTimeFromStartVertex;
+        long travelTimeFromStartIntersection = link.travelTimeFromStartIntersection(map.projector().toX(longitude), map.projector().toY(latitude));
         return new LocationOnRoad(link.road, travelTimeFromStartIntersection);
     }
 